@@ -12,12 +12,20 @@ package soot.jimple.infoflow.android;
 
 import heros.InterproceduralCFG;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import soot.Body;
 import soot.Local;
+import soot.Scene;
+import soot.SootClass;
 import soot.SootField;
 import soot.SootMethod;
 import soot.Unit;
@@ -30,6 +38,7 @@ import soot.jimple.ParameterRef;
 import soot.jimple.Stmt;
 import soot.jimple.StringConstant;
 import soot.jimple.infoflow.android.data.AndroidMethod;
+import soot.jimple.infoflow.android.data.MethodSpecIndex;
 import soot.jimple.infoflow.android.resources.ARSCFileParser;
 import soot.jimple.infoflow.android.resources.ARSCFileParser.AbstractResource;
 import soot.jimple.infoflow.android.resources.ARSCFileParser.ResPackage;
@@ -39,6 +48,9 @@ import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 import soot.jimple.toolkits.scalar.ConstantPropagatorAndFolder;
 import soot.tagkit.IntegerConstantValueTag;
 import soot.tagkit.Tag;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.scalar.SimpleLiveLocals;
+import soot.toolkits.scalar.SmartLocalDefs;
 
 /**
  * SourceManager implementation for AndroidSources
@@ -47,8 +59,6 @@ import soot.tagkit.Tag;
  */
 public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	
-	private static final boolean FAST_MATCHING = true;
-	
 	/**
 	 * Possible modes for matching layout components as data flow sources
 	 * 
@@ -80,7 +90,8 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	private final Set<AndroidMethod> sourceMethods;
 	private final Set<AndroidMethod> sinkMethods;
 	private final Set<AndroidMethod> callbackMethods;
-	private final boolean weakMatching;
+	private final MethodSpecIndex sourceIndex;
+	private final MethodSpecIndex sinkIndex;
 	
 	private final LayoutMatchingMode layoutMatching;
 	private final Map<Integer, LayoutControl> layoutControls;
@@ -88,7 +99,50 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	
 	private String appPackageName = "";
 	
-	private final Set<SootMethod> analyzedLayoutMethods = new HashSet<SootMethod>();
+	private static final byte METHOD_SOURCE = 1;
+	private static final byte METHOD_SINK = 2;
+	
+	/**
+	 * The data precomputed for a specific Scene. It is never modified after
+	 * it has been created, so the solver threads can share it without any
+	 * locking.
+	 */
+	private static class SceneData {
+		
+		private final Scene scene;
+		
+		/**
+		 * The source and sink flags of all methods in the Scene, indexed by
+		 * method number
+		 */
+		private final byte[] methodTable;
+		
+		/**
+		 * The callback methods whose parameters are sources
+		 */
+		private final Set<SootMethod> callbackMethods;
+		
+		/**
+		 * The calls to findViewById and the resource IDs passed to them, or
+		 * null if the ID could not be determined
+		 */
+		private final Map<Stmt, Integer> layoutResourceIDs;
+		
+		SceneData(Scene scene, byte[] methodTable, Set<SootMethod> callbackMethods,
+				Map<Stmt, Integer> layoutResourceIDs) {
+			this.scene = scene;
+			this.methodTable = methodTable;
+			this.callbackMethods = Collections.unmodifiableSet(callbackMethods);
+			this.layoutResourceIDs = Collections.unmodifiableMap(layoutResourceIDs);
+		}
+		
+	}
+	
+	private volatile SceneData sceneData = null;
+	
+	private boolean countLookups = false;
+	private final AtomicLong lookupHits = new AtomicLong();
+	private final AtomicLong lookupMisses = new AtomicLong();
 	
 	/**
 	 * Creates a new instance of the {@link AndroidSourceSinkManager} class with
@@ -108,10 +162,12 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * either strong or weak matching.
 	 * @param sources The list of source methods
 	 * @param sinks The list of sink methods
-	 * @param weakMatching True for weak matching: If an entry in the list has
-	 * no return type, it matches arbitrary return types if the rest of the
-	 * method signature is compatible. False for strong matching: The method
-	 * signature in the code exactly match the one in the list.
+	 * @param weakMatching True for weak matching: The return types of the
+	 * entries in the list are ignored, i.e., an entry matches arbitrary return
+	 * types if the rest of the method signature is compatible. False for
+	 * strong matching: The method signature in the code must exactly match
+	 * the one in the list. Entries without a return type match arbitrary
+	 * return types in both modes.
 	 */
 	public AndroidSourceSinkManager
 			(Set<AndroidMethod> sources,
@@ -130,10 +186,12 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	 * @param callbackMethods The list of callback methods whose parameters
 	 * are sources through which the application receives data from the
 	 * operating system
-	 * @param weakMatching True for weak matching: If an entry in the list has
-	 * no return type, it matches arbitrary return types if the rest of the
-	 * method signature is compatible. False for strong matching: The method
-	 * signature in the code exactly match the one in the list.
+	 * @param weakMatching True for weak matching: The return types of the
+	 * entries in the list are ignored, i.e., an entry matches arbitrary return
+	 * types if the rest of the method signature is compatible. False for
+	 * strong matching: The method signature in the code must exactly match
+	 * the one in the list. Entries without a return type match arbitrary
+	 * return types in both modes.
 	 * @param layoutMatching Specifies whether and how to use Android layout
 	 * components as sources for the information flow analysis
 	 * @param layoutControls A map from reference identifiers to the respective
@@ -150,7 +208,8 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 		this.sinkMethods = sinks;
 		this.callbackMethods = callbackMethods;
 		
-		this.weakMatching = false;
+		this.sourceIndex = new MethodSpecIndex(sources, weakMatching);
+		this.sinkIndex = new MethodSpecIndex(sinks, weakMatching);
 		this.layoutMatching = layoutMatching;
 		this.layoutControls = layoutControls;
 		
@@ -160,52 +219,209 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	}
 
 	/**
-	 * Checks whether the given method matches one of the methods from the list
-	 * @param sMethod The method to check for a match
-	 * @param aMethods The list of reference methods
-	 * @return True if the given method matches an entry in the list, otherwise
-	 * false
+	 * Prepares this manager for the current Scene. All source and sink
+	 * methods are classified, the callback methods are resolved, and the
+	 * bodies of all methods that look up UI controls are analyzed for the
+	 * IDs of these controls. This is the only place in which method bodies
+	 * are modified, so it must not run concurrently with anything else that
+	 * reads the bodies. Afterwards, the manager can be queried from any
+	 * number of threads without locking.
+	 * 
+	 * If this method is not called explicitly, the first query on a new
+	 * Scene performs the preparation. The taint analysis asks for its
+	 * initial seeds before it starts the solver threads, so this happens
+	 * in a single-threaded phase.
 	 */
-	private boolean matchesMethod(SootMethod sMethod, Set<AndroidMethod> aMethods) {
-		if (FAST_MATCHING)
-			return aMethods.contains(new AndroidMethod(sMethod));
-		else {
-			for (AndroidMethod am : aMethods) {
-				if (!am.getClassName().equals(sMethod.getDeclaringClass().getName()))
-					continue;
-				if (!am.getMethodName().equals(sMethod.getName()))
-					continue;
-				if (am.getParameters().size() != sMethod.getParameterCount())
-					continue;
-				
-				boolean matches = true;
-				for (int i = 0; i < am.getParameters().size(); i++)
-					if (!am.getParameters().get(i).equals(sMethod.getParameterType(i).toString())) {
-						matches = false;
-						break;
-					}
-				if (!matches)
-					continue;
-				
-				if (!weakMatching)
-					if (!am.getReturnType().isEmpty())
-						if (!am.getReturnType().equals(sMethod.getReturnType().toString()))
-							continue;
-				
-				return true;
-			}
-			return false;
+	public void prepare() {
+		prepareSceneData();
+	}
+	
+	private synchronized SceneData prepareSceneData() {
+		SceneData data = this.sceneData;
+		if (data != null && data.scene == Scene.v())
+			return data;
+		
+		// Take a snapshot of all classes. Resolving method references may
+		// add new classes to the Scene.
+		List<SootClass> classes = new ArrayList<SootClass>(Scene.v().getClasses());
+		
+		// Classify all methods in the Scene
+		int maxNumber = 0;
+		for (SootClass sc : classes)
+			for (SootMethod sm : sc.getMethods())
+				maxNumber = Math.max(maxNumber, sm.getNumber());
+		byte[] methodTable = new byte[maxNumber + 1];
+		Map<SootClass, List<SootClass>> specAncestors = new HashMap<SootClass, List<SootClass>>();
+		for (SootClass sc : classes)
+			for (SootMethod sm : sc.getMethods())
+				if (sm.getNumber() > 0)
+					methodTable[sm.getNumber()] = classifyMethod(sm, specAncestors);
+		
+		// Resolve the callbacks
+		Set<SootMethod> callbacks = new HashSet<SootMethod>(this.callbackMethods.size());
+		for (AndroidMethod am : this.callbackMethods)
+			if (Scene.v().containsMethod(am.getSignature()))
+				callbacks.add(Scene.v().getMethod(am.getSignature()));
+		
+		// Find the calls that look up UI controls
+		Map<Stmt, Integer> layoutResourceIDs = new HashMap<Stmt, Integer>();
+		if (this.layoutMatching != LayoutMatchingMode.NoMatch)
+			for (SootClass sc : classes)
+				for (SootMethod sm : new ArrayList<SootMethod>(sc.getMethods()))
+					if (sm.hasActiveBody())
+						analyzeLayoutMethod(sm, layoutResourceIDs);
+		
+		data = new SceneData(Scene.v(), methodTable, callbacks, layoutResourceIDs);
+		this.sceneData = data;
+		return data;
+	}
+	
+	/**
+	 * Gets the data precomputed for the current Scene
+	 * @return The data for the current Scene
+	 */
+	private SceneData getSceneData() {
+		SceneData data = this.sceneData;
+		if (data != null && data.scene == Scene.v())
+			return data;
+		return prepareSceneData();
+	}
+	
+	/**
+	 * Gets the classification of the given method as a combination of the
+	 * METHOD_SOURCE and METHOD_SINK flags
+	 * @param sMethod The method to classify
+	 * @return The flags for the given method
+	 */
+	private byte getMethodFlags(SootMethod sMethod) {
+		byte[] table = getSceneData().methodTable;
+		int num = sMethod.getNumber();
+		if (num > 0 && num < table.length) {
+			if (countLookups)
+				lookupHits.incrementAndGet();
+			return table[num];
+		}
+		
+		// The method has been created after the preparation. This path is
+		// slow anyway, so we always count these lookups.
+		lookupMisses.incrementAndGet();
+		return classifyMethod(sMethod, new HashMap<SootClass, List<SootClass>>());
+	}
+	
+	/**
+	 * Classifies the given method as source and/or sink. A method is a
+	 * source or sink if it is listed as such, or if it overrides or
+	 * implements a method that is listed in one of the supertypes of its
+	 * class.
+	 * @param sMethod The method to classify
+	 * @param specAncestors A cache for the supertypes that have source or
+	 * sink entries
+	 * @return The flags for the given method
+	 */
+	private byte classifyMethod(SootMethod sMethod, Map<SootClass, List<SootClass>> specAncestors) {
+		byte flags = 0;
+		if (this.sourceIndex.matches(sMethod))
+			flags |= METHOD_SOURCE;
+		if (this.sinkIndex.matches(sMethod))
+			flags |= METHOD_SINK;
+		if (flags == (METHOD_SOURCE | METHOD_SINK)
+				|| sMethod.isStatic() || sMethod.isPrivate() || sMethod.isConstructor())
+			return flags;
+		
+		// Check the methods this one overrides
+		String subSig = null;
+		for (SootClass ancestor : getSpecAncestors(sMethod.getDeclaringClass(), specAncestors)) {
+			if (subSig == null)
+				subSig = sMethod.getSubSignature();
+			if (!ancestor.declaresMethod(subSig))
+				continue;
+			if (this.sourceIndex.getMatch(ancestor.getName(), subSig) != null)
+				flags |= METHOD_SOURCE;
+			if (this.sinkIndex.getMatch(ancestor.getName(), subSig) != null)
+				flags |= METHOD_SINK;
+		}
+		return flags;
+	}
+	
+	/**
+	 * Gets all transitive superclasses and interfaces of the given class for
+	 * which there are source or sink entries
+	 * @param sc The class whose supertypes to get
+	 * @param specAncestors A cache for the supertypes that have already been
+	 * computed
+	 * @return The supertypes of the given class that have source or sink
+	 * entries
+	 */
+	private List<SootClass> getSpecAncestors(SootClass sc, Map<SootClass, List<SootClass>> specAncestors) {
+		List<SootClass> ancestors = specAncestors.get(sc);
+		if (ancestors != null)
+			return ancestors;
+		
+		// Guard against cycles in broken class hierarchies
+		specAncestors.put(sc, Collections.<SootClass>emptyList());
+		
+		// We cannot look at the supertypes of classes that have not been
+		// resolved
+		if (sc.resolvingLevel() < SootClass.HIERARCHY)
+			return Collections.emptyList();
+		
+		Set<SootClass> supertypes = new LinkedHashSet<SootClass>();
+		if (sc.hasSuperclass())
+			supertypes.add(sc.getSuperclass());
+		supertypes.addAll(sc.getInterfaces());
+		
+		Set<SootClass> result = new LinkedHashSet<SootClass>();
+		for (SootClass supertype : supertypes) {
+			if (this.sourceIndex.getClassNames().contains(supertype.getName())
+					|| this.sinkIndex.getClassNames().contains(supertype.getName()))
+				result.add(supertype);
+			result.addAll(getSpecAncestors(supertype, specAncestors));
 		}
+		ancestors = result.isEmpty() ? Collections.<SootClass>emptyList()
+				: new ArrayList<SootClass>(result);
+		specAncestors.put(sc, ancestors);
+		return ancestors;
 	}
 	
 	@Override
 	public boolean isSourceMethod(SootMethod sMethod) {
-		return this.matchesMethod(sMethod, this.sourceMethods);
+		return (getMethodFlags(sMethod) & METHOD_SOURCE) != 0;
 	}
 
 	@Override
 	public boolean isSinkMethod(SootMethod sMethod) {
-		return this.matchesMethod(sMethod, this.sinkMethods);
+		return (getMethodFlags(sMethod) & METHOD_SINK) != 0;
+	}
+	
+	/**
+	 * Sets whether the source and sink queries that are answered from the
+	 * table of classified methods shall be counted. All threads share the
+	 * counter, so this option should only be enabled for diagnostics. It is
+	 * disabled by default. Lookup misses are always counted.
+	 * @param countLookups True if lookup hits shall be counted, otherwise
+	 * false
+	 */
+	public void setCountLookups(boolean countLookups) {
+		this.countLookups = countLookups;
+	}
+	
+	/**
+	 * Gets the number of source and sink queries that have been answered
+	 * from the table of classified methods. The hits are only counted if
+	 * this has been enabled using {@link #setCountLookups(boolean)}.
+	 * @return The number of source and sink lookup hits
+	 */
+	public long getLookupHits() {
+		return lookupHits.get();
+	}
+	
+	/**
+	 * Gets the number of source and sink queries for methods that were not
+	 * yet in the Scene when the manager was prepared
+	 * @return The number of source and sink lookup misses
+	 */
+	public long getLookupMisses() {
+		return lookupMisses.get();
 	}
 
 	@Override
@@ -223,9 +439,8 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 		if (sCallSite instanceof IdentityStmt) {
 			IdentityStmt is = (IdentityStmt) sCallSite;
 			if (is.getRightOp() instanceof ParameterRef)
-				for (AndroidMethod am : this.callbackMethods)
-					if (am.getSignature().equals(cfg.getMethodOf(sCallSite).getSignature()))
-						return true;
+				if (getSceneData().callbackMethods.contains(cfg.getMethodOf(sCallSite)))
+					return true;
 		}
 		
 		return false;
@@ -245,137 +460,182 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 		// to one of the well-known resource handling functions in Android
 		if (this.layoutMatching != LayoutMatchingMode.NoMatch
 				&& sCallSite.containsInvokeExpr()) {
-			InvokeExpr ie = sCallSite.getInvokeExpr();
-			if (ie.getMethod().getSignature().equals(Activity_FindViewById)
-					|| ie.getMethod().getSignature().equals(View_FindViewById)) {
-				// Perform a constant propagation inside this method exactly once
-				SootMethod uiMethod = cfg.getMethodOf(sCallSite);
-				if (analyzedLayoutMethods.add(uiMethod))
-					ConstantPropagatorAndFolder.v().transform(uiMethod.getActiveBody());
-				
-				// If we match all controls, we don't care about the specific
-				// control we're dealing with
-				if (this.layoutMatching == LayoutMatchingMode.MatchAll)
-					return true;
-				
-				// If we match specific controls, we need to get the ID of
-				// control and look up the respective data object
-				if (ie.getArgCount() != 1) {
-					System.err.println("Framework method call with unexpected "
-							+ "number of arguments");
-					return false;
-				}
-				int id = 0;
-				if (ie.getArg(0) instanceof IntConstant)
-					id = ((IntConstant) ie.getArg(0)).value;
-				else if (ie.getArg(0) instanceof Local) {
-					Integer idVal = findLastResIDAssignment(sCallSite, (Local)
-							ie.getArg(0), (BiDiInterproceduralCFG<Unit, SootMethod>) cfg,
-							new HashSet<Stmt>(cfg.getMethodOf(sCallSite).getActiveBody().getUnits().size()));
-					if (idVal == null) {
-						System.err.println("Could not find assignment to local " + ((Local) ie.getArg(0)).getName()
-								+ " in method " + cfg.getMethodOf(sCallSite).getSignature());
-						return false;
-					}
-					else
-						id = idVal.intValue();
-				}
-				else {
-					System.err.println("Framework method call with unexpected "
-							+ "parameter type: " + ie.toString() + ", "
-							+ "first parameter is of type " + ie.getArg(0).getClass());
-					return false;
-				}
-				
-				LayoutControl control = this.layoutControls.get(id);
-				if (control == null) {
-					System.err.println("Layout control with ID " + id + " not found");
-					return false;
-				}
-				if (this.layoutMatching == LayoutMatchingMode.MatchSensitiveOnly
-						&& control.isSensitive())
- 					return true;
+			// The calls to findViewById have been collected when preparing
+			// the manager
+			Map<Stmt, Integer> layoutResourceIDs = getSceneData().layoutResourceIDs;
+			if (!layoutResourceIDs.containsKey(sCallSite))
+				return false;
+			
+			// If we match all controls, we don't care about the specific
+			// control we're dealing with
+			if (this.layoutMatching == LayoutMatchingMode.MatchAll)
+				return true;
+			
+			// If we match specific controls, we need to look up the control
+			// with the ID we have found
+			Integer id = layoutResourceIDs.get(sCallSite);
+			if (id == null)
+				return false;
+			LayoutControl control = this.layoutControls.get(id);
+			if (control == null) {
+				System.err.println("Layout control with ID " + id + " not found");
+				return false;
 			}
+			if (this.layoutMatching == LayoutMatchingMode.MatchSensitiveOnly
+					&& control.isSensitive())
+				return true;
 		}
 		return false;
 	}
-
+	
 	/**
-	 * Finds the last assignment to the given local representing a resource ID
-	 * by searching upwards from the given statement
-	 * @param stmt The statement from which to look backwards
-	 * @param local The variable for which to look for assignments
-	 * @return The last value assigned to the given variable
+	 * Checks whether the given invocation looks up a UI control by its ID
+	 * @param ie The invocation to check
+	 * @return True if the given invocation is a call to findViewById,
+	 * otherwise false
+	 */
+	private boolean isFindViewById(InvokeExpr ie) {
+		// Check the name first, it is much cheaper than building the
+		// signature of the resolved method
+		if (!ie.getMethodRef().name().equals("findViewById"))
+			return false;
+		String sig = ie.getMethod().getSignature();
+		return sig.equals(Activity_FindViewById) || sig.equals(View_FindViewById);
+	}
+	
+	/**
+	 * Resolves the resource IDs passed to all calls to findViewById in the
+	 * given method. The IDs are computed with a single constant propagation
+	 * and a single def-use analysis on the method.
+	 * @param uiMethod The method that may look up UI controls
+	 * @param layoutResourceIDs The map to which to add the calls to
+	 * findViewById and the IDs passed to them
 	 */
-	private Integer findLastResIDAssignment
-			(Stmt stmt, Local local, BiDiInterproceduralCFG<Unit, SootMethod> cfg,
-			Set<Stmt> doneSet) {
-		if (!doneSet.add(stmt))
-			return null;
+	private void analyzeLayoutMethod(SootMethod uiMethod, Map<Stmt, Integer> layoutResourceIDs) {
+		Body body = uiMethod.getActiveBody();
+		boolean hasUICalls = false;
+		for (Unit u : body.getUnits()) {
+			Stmt stmt = (Stmt) u;
+			if (stmt.containsInvokeExpr() && isFindViewById(stmt.getInvokeExpr())) {
+				hasUICalls = true;
+				break;
+			}
+		}
+		if (!hasUICalls)
+			return;
 		
-		// If this is an assign statement, we need to check whether it changes
-		// the variable we're looking for
-		if (stmt instanceof AssignStmt) {
-			AssignStmt assign = (AssignStmt) stmt;
-			if (assign.getLeftOp() == local) {
-				// ok, now find the new value from the right side
-				if (assign.getRightOp() instanceof IntConstant)
-					return ((IntConstant) assign.getRightOp()).value;
-				else if (assign.getRightOp() instanceof FieldRef) {
-					SootField field = ((FieldRef) assign.getRightOp()).getField();
-					for (Tag tag : field.getTags())
-						if (tag instanceof IntegerConstantValueTag)
-							return ((IntegerConstantValueTag) tag).getIntValue();
-						else
-							System.err.println("Constant " + field + " was of unexpected type");
-				}
-				else if (assign.getRightOp() instanceof InvokeExpr) {
-					InvokeExpr inv = (InvokeExpr) assign.getRightOp();
-					if (inv.getMethod().getName().equals("getIdentifier")
-							&& inv.getMethod().getDeclaringClass().getName().equals("android.content.res.Resources")
-							&& this.resourcePackages != null) {
-						// The right side of the assignment is a call into the well-known
-						// Android API method for resource handling
-						if (inv.getArgCount() != 3) {
-							System.err.println("Invalid parameter count for call to getIdentifier");
-							return null;
-						}
-						
-						// Find the parameter values
-						String resName = "";
-						String resID = "";
-						String packageName = "";
-						
-						// In the trivial case, these values are constants
-						if (inv.getArg(0) instanceof StringConstant)
-							resName = ((StringConstant) inv.getArg(0)).value;
-						if (inv.getArg(1) instanceof StringConstant)
-							resID = ((StringConstant) inv.getArg(1)).value;
-						if (inv.getArg(2) instanceof StringConstant)
-							packageName = ((StringConstant) inv.getArg(2)).value;
-						else if (inv.getArg(2) instanceof Local)
-							packageName = findLastStringAssignment(stmt, (Local) inv.getArg(2), cfg);
-						else  {
-							System.err.println("Unknown parameter type in call to getIdentifier");
-							return null;
-						}
-												
-						// Find the resource
-						ARSCFileParser.AbstractResource res = findResource(resName, resID, packageName);
-						if (res != null)
-							return res.getResourceID();
-					}
+		// Perform a constant propagation inside this method exactly once
+		ConstantPropagatorAndFolder.v().transform(body);
+		
+		SmartLocalDefs localDefs = null;
+		for (Unit u : body.getUnits()) {
+			Stmt stmt = (Stmt) u;
+			if (!stmt.containsInvokeExpr() || !isFindViewById(stmt.getInvokeExpr()))
+				continue;
+			
+			InvokeExpr ie = stmt.getInvokeExpr();
+			layoutResourceIDs.put(stmt, null);
+			if (ie.getArgCount() != 1) {
+				System.err.println("Framework method call with unexpected "
+						+ "number of arguments");
+				continue;
+			}
+			if (ie.getArg(0) instanceof IntConstant)
+				layoutResourceIDs.put(stmt, ((IntConstant) ie.getArg(0)).value);
+			else if (ie.getArg(0) instanceof Local) {
+				// Only build the def-use chains if we actually need them
+				if (localDefs == null) {
+					ExceptionalUnitGraph graph = new ExceptionalUnitGraph(body);
+					localDefs = new SmartLocalDefs(graph, new SimpleLiveLocals(graph));
 				}
+				Integer idVal = findResIDAssignment(stmt, (Local) ie.getArg(0), localDefs,
+						new HashSet<Unit>());
+				if (idVal == null)
+					System.err.println("Could not find assignment to local " + ((Local) ie.getArg(0)).getName()
+							+ " in method " + uiMethod.getSignature());
+				else
+					layoutResourceIDs.put(stmt, idVal);
 			}
+			else
+				System.err.println("Framework method call with unexpected "
+						+ "parameter type: " + ie.toString() + ", "
+						+ "first parameter is of type " + ie.getArg(0).getClass());
 		}
+	}
 
-		// Continue the search upwards
-		for (Unit pred : cfg.getPredsOf(stmt)) {
-			if (!(pred instanceof Stmt))
+	/**
+	 * Finds the resource ID assigned to the given local at the given
+	 * statement
+	 * @param stmt The statement at which the local is used
+	 * @param local The variable for which to look for assignments
+	 * @param localDefs The def-use chains of the method containing the
+	 * statement
+	 * @param doneSet The definitions that have already been inspected
+	 * @return The resource ID assigned to the given variable, or null if it
+	 * cannot be determined
+	 */
+	private Integer findResIDAssignment(Stmt stmt, Local local, SmartLocalDefs localDefs,
+			Set<Unit> doneSet) {
+		for (Unit def : localDefs.getDefsOfAt(local, stmt)) {
+			if (!(def instanceof AssignStmt) || !doneSet.add(def))
 				continue;
-			Integer lastAssignment = findLastResIDAssignment((Stmt) pred, local, cfg, doneSet);
-			if (lastAssignment != null)
-				return lastAssignment;
+			AssignStmt assign = (AssignStmt) def;
+			
+			// ok, now find the new value from the right side
+			if (assign.getRightOp() instanceof IntConstant)
+				return ((IntConstant) assign.getRightOp()).value;
+			else if (assign.getRightOp() instanceof Local) {
+				// Follow copies between locals
+				Integer id = findResIDAssignment(assign, (Local) assign.getRightOp(),
+						localDefs, doneSet);
+				if (id != null)
+					return id;
+			}
+			else if (assign.getRightOp() instanceof FieldRef) {
+				SootField field = ((FieldRef) assign.getRightOp()).getField();
+				for (Tag tag : field.getTags())
+					if (tag instanceof IntegerConstantValueTag)
+						return ((IntegerConstantValueTag) tag).getIntValue();
+					else
+						System.err.println("Constant " + field + " was of unexpected type");
+			}
+			else if (assign.getRightOp() instanceof InvokeExpr) {
+				InvokeExpr inv = (InvokeExpr) assign.getRightOp();
+				if (inv.getMethod().getName().equals("getIdentifier")
+						&& inv.getMethod().getDeclaringClass().getName().equals("android.content.res.Resources")
+						&& this.resourcePackages != null) {
+					// The right side of the assignment is a call into the well-known
+					// Android API method for resource handling
+					if (inv.getArgCount() != 3) {
+						System.err.println("Invalid parameter count for call to getIdentifier");
+						continue;
+					}
+					
+					// Find the parameter values
+					String resName = "";
+					String resID = "";
+					String packageName = "";
+					
+					// In the trivial case, these values are constants
+					if (inv.getArg(0) instanceof StringConstant)
+						resName = ((StringConstant) inv.getArg(0)).value;
+					if (inv.getArg(1) instanceof StringConstant)
+						resID = ((StringConstant) inv.getArg(1)).value;
+					if (inv.getArg(2) instanceof StringConstant)
+						packageName = ((StringConstant) inv.getArg(2)).value;
+					else if (inv.getArg(2) instanceof Local)
+						packageName = findStringAssignment(assign, (Local) inv.getArg(2), localDefs);
+					else  {
+						System.err.println("Unknown parameter type in call to getIdentifier");
+						continue;
+					}
+											
+					// Find the resource
+					ARSCFileParser.AbstractResource res = findResource(resName, resID, packageName);
+					if (res != null)
+						return res.getResourceID();
+				}
+			}
 		}
 		return null;
 	}
@@ -412,30 +672,22 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	}
 
 	/**
-	 * Finds the last assignment to the given String local by searching upwards
-	 * from the given statement
-	 * @param stmt The statement from which to look backwards
+	 * Finds the string constant assigned to the given local at the given
+	 * statement
+	 * @param stmt The statement at which the local is used
 	 * @param local The variable for which to look for assignments
-	 * @return The last value assigned to the given variable
+	 * @param localDefs The def-use chains of the method containing the
+	 * statement
+	 * @return The string assigned to the given variable, or null if it cannot
+	 * be determined
 	 */
-	private String findLastStringAssignment(Stmt stmt, Local local, BiDiInterproceduralCFG<Unit, SootMethod> cfg) {
-		if (stmt instanceof AssignStmt) {
-			AssignStmt assign = (AssignStmt) stmt;
-			if (assign.getLeftOp() == local) {
-				// ok, now find the new value from the right side
+	private String findStringAssignment(Stmt stmt, Local local, SmartLocalDefs localDefs) {
+		for (Unit def : localDefs.getDefsOfAt(local, stmt))
+			if (def instanceof AssignStmt) {
+				AssignStmt assign = (AssignStmt) def;
 				if (assign.getRightOp() instanceof StringConstant)
 					return ((StringConstant) assign.getRightOp()).value;
 			}
-		}
-		
-		// Continue the search upwards
-		for (Unit pred : cfg.getPredsOf(stmt)) {
-			if (!(pred instanceof Stmt))
-				continue;
-			String lastAssignment = findLastStringAssignment((Stmt) pred, local, cfg);
-			if (lastAssignment != null)
-				return lastAssignment;
-		}
 		return null;
 	}
 
@@ -445,6 +697,8 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void addSink(Set<AndroidMethod> sinks) {
 		this.sinkMethods.addAll(sinks);
+		this.sinkIndex.addAll(sinks);
+		this.sceneData = null;
 	}
 
 	/**
@@ -455,6 +709,7 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void setResourcePackages(List<ResPackage> resourcePackages) {
 		this.resourcePackages = resourcePackages;
+		this.sceneData = null;
 	}
 
 	/**
@@ -463,6 +718,7 @@ public class AndroidSourceSinkManager extends MethodBasedSourceSinkManager {
 	 */
 	public void setAppPackageName(String appPackageName) {
 		this.appPackageName = appPackageName;
+		this.sceneData = null;
 	}
 
 }
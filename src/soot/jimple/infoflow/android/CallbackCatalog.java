@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catalog of the well-known Android callback interfaces and the callback
+ * methods they declare. The catalog is read from the file
+ * "AndroidCallbacks.txt" which contains one interface per line, optionally
+ * followed by a colon and a semicolon-separated list of callback methods:
+ *
+ * <pre>
+ * android.location.LocationListener: onLocationChanged; onStatusChanged
+ * android.view.View$OnClickListener: void onClick(android.view.View)
+ * </pre>
+ *
+ * A callback is either given by its name or, if the name is overloaded, by
+ * its full subsignature. Lines starting with "#" are comments.
+ */
+public class CallbackCatalog {
+
+	private static final String CATALOG_FILE = "AndroidCallbacks.txt";
+
+	private static CallbackCatalog defaultCatalog = null;
+
+	/**
+	 * A callback method declared by an Android callback interface
+	 */
+	public static class CallbackMethod {
+
+		private final String methodName;
+		private final String subSignature;
+
+		CallbackMethod(String methodName, String subSignature) {
+			this.methodName = methodName;
+			this.subSignature = subSignature;
+		}
+
+		/**
+		 * Gets the name of the callback method
+		 * @return The name of the callback method
+		 */
+		public String getMethodName() {
+			return this.methodName;
+		}
+
+		/**
+		 * Gets the subsignature of the callback method
+		 * @return The subsignature of the callback method, or null if the
+		 * method is only identified by its name
+		 */
+		public String getSubSignature() {
+			return this.subSignature;
+		}
+
+		@Override
+		public String toString() {
+			return subSignature == null ? methodName : subSignature;
+		}
+
+	}
+
+	private final Map<String, List<CallbackMethod>> callbacks = new HashMap<String, List<CallbackMethod>>();
+
+	/**
+	 * Gets the default catalog. If the working directory contains a file
+	 * "AndroidCallbacks.txt", this file is used, otherwise the catalog that
+	 * ships with FlowDroid. Older versions of the file only list the
+	 * interfaces. For interfaces without callback methods, the methods are
+	 * taken from the catalog that ships with FlowDroid. The catalog is only
+	 * loaded once.
+	 * @return The default callback catalog
+	 * @throws IOException Thrown if the catalog cannot be read
+	 */
+	public static synchronized CallbackCatalog getDefault() throws IOException {
+		if (defaultCatalog == null) {
+			InputStream is = CallbackCatalog.class.getResourceAsStream(CATALOG_FILE);
+			CallbackCatalog bundledCatalog = is == null ? null : fromStream(is);
+
+			File catalogFile = new File(CATALOG_FILE);
+			if (catalogFile.exists()) {
+				CallbackCatalog catalog = fromFile(catalogFile.getPath());
+				catalog.addMissingMethods(bundledCatalog);
+				defaultCatalog = catalog;
+			}
+			else if (bundledCatalog != null)
+				defaultCatalog = bundledCatalog;
+			else
+				throw new IOException("Callback catalog " + CATALOG_FILE + " not found");
+		}
+		return defaultCatalog;
+	}
+
+	/**
+	 * Takes the callback methods for all interfaces that are listed without
+	 * methods in this catalog from the given catalog. Interfaces for which no
+	 * methods are known at all are reported, since no callbacks will be found
+	 * for them.
+	 * @param fallback The catalog from which to take the missing methods, or
+	 * null if there is no such catalog
+	 */
+	void addMissingMethods(CallbackCatalog fallback) {
+		for (Map.Entry<String, List<CallbackMethod>> entry : callbacks.entrySet()) {
+			if (!entry.getValue().isEmpty())
+				continue;
+			List<CallbackMethod> methods = fallback == null ? null
+					: fallback.getCallbackMethods(entry.getKey());
+			if (methods != null && !methods.isEmpty())
+				entry.setValue(methods);
+			else
+				System.err.println("Warning: No callback methods known for interface "
+						+ entry.getKey() + ", its callbacks will not be found");
+		}
+	}
+
+	/**
+	 * Reads a callback catalog from the given file
+	 * @param fileName The name of the file to read
+	 * @return The callback catalog read from the given file
+	 * @throws IOException Thrown if the file cannot be read
+	 */
+	public static CallbackCatalog fromFile(String fileName) throws IOException {
+		return fromStream(new FileInputStream(fileName));
+	}
+
+	/**
+	 * Reads a callback catalog from the given stream. The stream is closed
+	 * afterwards.
+	 * @param stream The stream from which to read the catalog
+	 * @return The callback catalog read from the given stream
+	 * @throws IOException Thrown if the stream cannot be read
+	 */
+	public static CallbackCatalog fromStream(InputStream stream) throws IOException {
+		CallbackCatalog catalog = new CallbackCatalog();
+		BufferedReader rdr = null;
+		try {
+			rdr = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+			String line;
+			while ((line = rdr.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#"))
+					catalog.parseLine(line);
+			}
+		}
+		finally {
+			if (rdr != null)
+				rdr.close();
+			else
+				stream.close();
+		}
+		return catalog;
+	}
+
+	private void parseLine(String line) {
+		int colonPos = line.indexOf(':');
+		String interfaceName = (colonPos < 0 ? line : line.substring(0, colonPos)).trim();
+		List<CallbackMethod> methods = new ArrayList<CallbackMethod>();
+		if (colonPos >= 0)
+			for (String method : line.substring(colonPos + 1).split(";")) {
+				method = method.trim();
+				if (method.isEmpty())
+					continue;
+
+				// Subsignatures have the form "void onClick(android.view.View)"
+				int bracketPos = method.indexOf('(');
+				if (bracketPos < 0)
+					methods.add(new CallbackMethod(method, null));
+				else {
+					String methodName = method.substring(0, bracketPos).trim();
+					methodName = methodName.substring(methodName.lastIndexOf(' ') + 1);
+					methods.add(new CallbackMethod(methodName, method));
+				}
+			}
+
+		// If an interface is listed more than once, the first entry wins
+		if (!callbacks.containsKey(interfaceName))
+			callbacks.put(interfaceName, Collections.unmodifiableList(methods));
+	}
+
+	/**
+	 * Gets the names of all callback interfaces in this catalog
+	 * @return The names of all callback interfaces in this catalog
+	 */
+	public Set<String> getCallbackInterfaces() {
+		return Collections.unmodifiableSet(callbacks.keySet());
+	}
+
+	/**
+	 * Gets the callback methods declared by the given interface
+	 * @param interfaceName The name of the interface
+	 * @return The callback methods declared by the given interface, or null
+	 * if the given interface is not a known callback interface
+	 */
+	public List<CallbackMethod> getCallbackMethods(String interfaceName) {
+		return callbacks.get(interfaceName);
+	}
+
+}
@@ -17,6 +17,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -30,12 +31,16 @@ import soot.SootMethod;
 import soot.jimple.infoflow.AbstractInfoflowProblem.PathTrackingMethod;
 import soot.jimple.infoflow.InfoflowResults;
 import soot.jimple.infoflow.android.AndroidSourceSinkManager.LayoutMatchingMode;
+import soot.jimple.infoflow.android.cache.ApkMetadata;
+import soot.jimple.infoflow.android.cache.ApkMetadataCache;
 import soot.jimple.infoflow.android.data.AndroidMethod;
 import soot.jimple.infoflow.android.data.parsers.PermissionMethodParser;
 import soot.jimple.infoflow.android.manifest.ProcessManifest;
 import soot.jimple.infoflow.android.resources.ARSCFileParser;
 import soot.jimple.infoflow.android.resources.ARSCFileParser.AbstractResource;
 import soot.jimple.infoflow.android.resources.ARSCFileParser.StringResource;
+import soot.jimple.infoflow.android.resources.ApkArchive;
+import soot.jimple.infoflow.android.resources.DexReferenceParser;
 import soot.jimple.infoflow.android.resources.LayoutControl;
 import soot.jimple.infoflow.android.resources.LayoutFileParser;
 import soot.jimple.infoflow.entryPointCreators.AndroidEntryPointCreator;
@@ -51,6 +56,7 @@ public class SetupApplication {
 	private Map<String, Set<AndroidMethod>> callbackMethods = new HashMap<String, Set<AndroidMethod>>(10000);
 	
 	private PathTrackingMethod pathTracking = PathTrackingMethod.NoTracking;
+	private LayoutMatchingMode layoutMatchingMode = LayoutMatchingMode.MatchSensitiveOnly;
 
 	private Set<String> entrypoints = null;
 	
@@ -61,6 +67,17 @@ public class SetupApplication {
 	private String androidJar;
 	private String apkFileLocation;
 	private String taintWrapperFile;
+	
+	private String platformJar = null;
+	
+	private ApkMetadataCache metadataCache = null;
+	private boolean incrementalCallbackAnalysis = false;
+	private int callbackThreadCount = 1;
+	private int layoutThreadCount = 1;
+	private boolean pruneSourcesSinks = false;
+	private boolean permissionFiltering = false;
+	private boolean flowPossible = true;
+	private Set<String> appPermissions = Collections.emptySet();
 
 	public SetupApplication(){
 		
@@ -101,54 +118,202 @@ public class SetupApplication {
 
 	public void setAndroidJar(String androidJar) {
 		this.androidJar = androidJar;
+		this.platformJar = null;
 	}
 
 	public void setApkFileLocation(String apkFileLocation) {
 		this.apkFileLocation = apkFileLocation;
+		this.platformJar = null;
 	}
 	
 	public void setTaintWrapperFile(String taintWrapperFile) {
 		this.taintWrapperFile = taintWrapperFile;
 	}
+	
+	/**
+	 * Sets the cache in which to store the metadata extracted from the app,
+	 * i.e., the manifest data, the resource table, and the results of the
+	 * layout file analysis. If the app has been analyzed before, the data is
+	 * taken from the cache instead of parsing the app again.
+	 * @param metadataCache The metadata cache to use, or null to always
+	 * parse the app
+	 */
+	public void setMetadataCache(ApkMetadataCache metadataCache) {
+		this.metadataCache = metadataCache;
+	}
+
+	/**
+	 * Sets whether the callback analysis shall keep the Scene alive between
+	 * its iterations. If this option is enabled, every iteration after the
+	 * first one only replaces the dummy main method and rebuilds the call
+	 * graph instead of loading the whole app and the platform classes again.
+	 * @param incremental True if the callback analysis shall be done
+	 * incrementally, otherwise false
+	 */
+	public void setIncrementalCallbackAnalysis(boolean incremental) {
+		this.incrementalCallbackAnalysis = incremental;
+	}
+
+	/**
+	 * Sets the number of threads to use for analyzing the callback
+	 * registrations in the app's methods. This option is set to 1 by default,
+	 * i.e., all methods are analyzed sequentially.
+	 * @param threadCount The number of threads to use
+	 */
+	public void setCallbackThreadCount(int threadCount) {
+		this.callbackThreadCount = threadCount;
+	}
+
+	/**
+	 * Sets the number of threads to use for decoding the app's layout XML
+	 * files. This option is set to 1 by default, i.e., all files are decoded
+	 * sequentially.
+	 * @param threadCount The number of threads to use
+	 */
+	public void setLayoutThreadCount(int threadCount) {
+		this.layoutThreadCount = threadCount;
+	}
+
+	/**
+	 * Sets whether the sources and sinks that the app never calls shall be
+	 * removed before the data flow analysis. This is a heuristic: methods are
+	 * only compared by name and parameter types, since the app may call a
+	 * source or sink through a subclass. If afterwards no sink is left, the
+	 * data flow analysis is skipped altogether. The analysis is also skipped
+	 * if there is no source left, no UI control can be looked up and no
+	 * callback takes parameters. Note that this is not a check for a
+	 * reachable pair of source and sink: every callback with parameters
+	 * counts as a possible source, so in practice the analysis is mostly
+	 * skipped because no sink is left. This option is disabled by default.
+	 * @param prune True if unreferenced sources and sinks shall be removed,
+	 * otherwise false
+	 */
+	public void setPruneSourcesSinks(boolean prune) {
+		this.pruneSourcesSinks = prune;
+	}
+
+	/**
+	 * Sets whether sources and sinks shall be removed if they require
+	 * permissions the app does not declare in its manifest. A source or sink
+	 * is only removed if the app declares none of the permissions listed for
+	 * it. This option is disabled by default.
+	 * @param filter True if sources and sinks shall be filtered by the app's
+	 * permissions, otherwise false
+	 */
+	public void setPermissionFiltering(boolean filter) {
+		this.permissionFiltering = filter;
+	}
 
 	public void calculateSourcesSinksEntrypoints
 			(String sourceSinkFile) throws IOException {
-		ProcessManifest processMan = new ProcessManifest();
-
+		// All parsers share a single handle on the apk file, so every entry
+		// is inflated at most once
+		ApkArchive archive = new ApkArchive(apkFileLocation);
+		try {
+			calculateSourcesSinksEntrypoints(sourceSinkFile, archive);
+		}
+		finally {
+			archive.close();
+		}
+	}
+	
+	private void calculateSourcesSinksEntrypoints
+			(String sourceSinkFile, ApkArchive archive) throws IOException {
+		this.flowPossible = true;
+		
+		// If we have analyzed this app before, we can take the metadata from
+		// the cache
+		ApkMetadata metadata = null;
+		// Finding the platform jar requires parsing the manifest, so we only
+		// do it once and reuse the result in all later Soot runs
+		this.platformJar = Scene.v().getAndroidJarPath(androidJar, apkFileLocation);
+		if (this.metadataCache != null) {
+			metadata = this.metadataCache.load(archive, this.platformJar);
+			if (metadata != null)
+				System.out.println("Loaded app metadata from cache");
+		}
+		
 		// To look for callbacks, we need to start somewhere. We use the Android
 		// lifecycle methods for this purpose.
-		processMan.loadManifestFile(apkFileLocation);
-		this.appPackageName = processMan.getPackageName();
-		this.entrypoints = processMan.getEntryPointClasses();
+		ProcessManifest processMan = null;
+		if (metadata == null) {
+			processMan = new ProcessManifest();
+			processMan.loadManifestFile(archive);
+			this.appPackageName = processMan.getPackageName();
+			this.entrypoints = processMan.getEntryPointClasses();
+			this.appPermissions = processMan.getPermissions();
+		}
+		else {
+			this.appPackageName = metadata.getPackageName();
+			this.entrypoints = metadata.getEntryPointClasses();
+			this.appPermissions = metadata.getPermissions();
+		}
 
-		// Parse the resource file
-		ARSCFileParser resParser = new ARSCFileParser();
-		resParser.parse(apkFileLocation);
+		// Parse the resource file. We only need the layouts for mapping
+		// classes to their layout files. If we want to match UI controls,
+		// we also need the IDs and strings to resolve the controls' IDs.
+		Set<String> resourceTypes = new HashSet<String>();
+		resourceTypes.add("layout");
+		if (this.layoutMatchingMode != LayoutMatchingMode.NoMatch) {
+			resourceTypes.add("id");
+			resourceTypes.add("string");
+		}
+		ARSCFileParser resParser = new ARSCFileParser(resourceTypes);
+		if (metadata == null)
+			resParser.parse(archive);
+		else if (metadata.getResourceTable() != null)
+			resParser.parse(metadata.getResourceTable());
 		this.resourcePackages = resParser.getPackages();
+		
+		// The layout data depends on the code, so we may need to recompute it
+		// even if the remaining metadata has been cached
+		boolean layoutCached = metadata != null && metadata.hasLayoutData();
+		Map<String, Set<String>> layoutCallbacks = null;
 
 		AnalyzeJimpleClass jimpleClass = null;
 		LayoutFileParser lfp = new LayoutFileParser(this.appPackageName, resParser);
+		lfp.setThreadCount(this.layoutThreadCount);
 		
+		SootMethod dummyMain = null;
 		boolean hasChanged = true;
 		while (hasChanged) {
 			hasChanged = false;
-			soot.G.reset();
-			initializeSoot();
+			if (jimpleClass == null || !this.incrementalCallbackAnalysis) {
+				soot.G.reset();
+				dummyMain = initializeSoot();
+			}
 	
 			if (jimpleClass == null) {
 				// Collect the callback interfaces implemented in the app's source code
 				jimpleClass = new AnalyzeJimpleClass(entrypoints);
+				jimpleClass.setThreadCount(this.callbackThreadCount);
 				jimpleClass.collectCallbackMethods();
 
 				// Find the user-defined sources in the layout XML files. This
 				// only needs to be done once, but is a Soot phase.
-				lfp.parseLayoutFile(apkFileLocation, entrypoints);
+				if (!layoutCached)
+					lfp.parseLayoutFile(archive, entrypoints);
+				
+				// Run the soot-based operations
+				PackManager.v().runPacks();
 			}
-			else
+			else if (this.incrementalCallbackAnalysis) {
+				// Keep the classes and bodies we have already loaded and only
+				// extend the dummy main method with the new callbacks
+				dummyMain = updateDummyMain(dummyMain);
+				PackManager.v().getPack("wjtp").remove("wjtp.ajc");
+				PackManager.v().getPack("wjtp").remove("wjtp.lfp");
 				jimpleClass.collectCallbackMethodsIncremental();
-			
-			// Run the soot-based operations
-			PackManager.v().runPacks();
+				
+				// Rebuild the call graph for the new dummy main method and
+				// run the callback analysis on it
+				PackManager.v().getPack("cg").apply();
+				PackManager.v().getPack("wjtp").apply();
+			}
+			else {
+				jimpleClass.collectCallbackMethodsIncremental();
+				PackManager.v().runPacks();
+			}
 			
 			// Collect the results of the soot-based phases
 			for (Entry<String, Set<AndroidMethod>> entry : jimpleClass.getCallbackMethods().entrySet()) {
@@ -161,7 +326,27 @@ public class SetupApplication {
 					hasChanged = true;
 				}
 			}
-			this.layoutControls = lfp.getUserControls();
+			if (!layoutCached) {
+				this.layoutControls = lfp.getUserControls();
+				layoutCallbacks = lfp.getCallbackMethods();
+			}
+			else if (layoutCallbacks == null) {
+				this.layoutControls = metadata.createLayoutControls();
+				layoutCallbacks = metadata.getLayoutCallbacks();
+			}
+		}
+		
+		// Update the cache
+		if (this.metadataCache != null && !layoutCached) {
+			if (metadata == null) {
+				metadata = new ApkMetadata();
+				metadata.setPackageName(processMan.getPackageName());
+				metadata.setApplicationName(processMan.getApplicationName());
+				metadata.setEntryPointClasses(processMan.getEntryPointClasses());
+				metadata.setPermissions(processMan.getPermissions());
+			}
+			metadata.setLayoutData(lfp.getUserControls(), lfp.getCallbackMethods());
+			this.metadataCache.store(archive, this.platformJar, metadata);
 		}
 		
 		// Collect the XML-based callback methods
@@ -170,8 +355,8 @@ public class SetupApplication {
 				AbstractResource resource = resParser.findResource(classId);
 				if (resource instanceof StringResource) {
 					StringResource strRes = (StringResource) resource;
-					if (lfp.getCallbackMethods().containsKey(strRes.getValue()))
-						for (String methodName : lfp.getCallbackMethods().get(strRes.getValue())) {
+					if (layoutCallbacks.containsKey(strRes.getValue()))
+						for (String methodName : layoutCallbacks.get(strRes.getValue())) {
 							Set<AndroidMethod> methods = this.callbackMethods.get(lcentry.getKey().getName());
 							if (methods == null) {
 								methods = new HashSet<AndroidMethod>();
@@ -229,12 +414,127 @@ public class SetupApplication {
 		setResult.setSink(true);
 		sinks.add(setResult);
 		
+		// Drop the sources and sinks the app is not allowed to call
+		if (this.permissionFiltering)
+			filterByPermissions();
+		
+		// Drop the sources and sinks the app never calls
+		if (this.pruneSourcesSinks)
+			pruneSourcesSinks(archive);
+		
 		System.out.println("Entry point calculation done.");
 		
-		// Clean up everything we no longer need
+		// Clean up everything we no longer need. The data flow analysis
+		// loads the app with a different configuration and always starts
+		// from a fresh Scene, so there is nothing we could hand over apart
+		// from the platform jar.
 		soot.G.reset();
 	}
 
+	/**
+	 * Removes all sources and sinks that require permissions of which the
+	 * app does not declare a single one
+	 */
+	private void filterByPermissions() {
+		Set<String> permissions = new HashSet<String>();
+		if (this.appPermissions != null)
+			for (String permission : this.appPermissions)
+				permissions.add(getShortPermissionName(permission));
+		
+		int sourceCount = sources.size();
+		int sinkCount = sinks.size();
+		removeUnpermittedMethods(sources, permissions);
+		removeUnpermittedMethods(sinks, permissions);
+		System.out.println("Dropped " + (sourceCount - sources.size()) + " of " + sourceCount
+				+ " sources and " + (sinkCount - sinks.size()) + " of " + sinkCount
+				+ " sinks requiring permissions the app does not declare");
+	}
+	
+	/**
+	 * Removes all methods that require permissions from the given set unless
+	 * the app declares at least one of these permissions. Methods without
+	 * permissions are always kept.
+	 * @param methods The set from which to remove the methods
+	 * @param permissions The short names of the permissions declared by the
+	 * app
+	 */
+	public static void removeUnpermittedMethods(Set<AndroidMethod> methods, Set<String> permissions) {
+		for (Iterator<AndroidMethod> amIt = methods.iterator(); amIt.hasNext(); ) {
+			boolean required = false;
+			boolean declared = false;
+			for (String permission : amIt.next().getPermissions()) {
+				if (permission.isEmpty())
+					continue;
+				required = true;
+				if (permissions.contains(getShortPermissionName(permission))) {
+					declared = true;
+					break;
+				}
+			}
+			if (required && !declared)
+				amIt.remove();
+		}
+	}
+	
+	/**
+	 * Gets the name of the given permission without the package, e.g.
+	 * "READ_PHONE_STATE" for "android.permission.READ_PHONE_STATE". Some
+	 * permission maps only contain the short names.
+	 * @param permission The permission name
+	 * @return The short name of the given permission
+	 */
+	public static String getShortPermissionName(String permission) {
+		return permission.substring(permission.lastIndexOf('.') + 1).trim();
+	}
+	
+	/**
+	 * Removes all sources and sinks that are not referenced anywhere in the
+	 * app's code. The references are read from the method tables of the dex
+	 * files, so the app's code does not need to be loaded. If afterwards
+	 * there is no sink left, or no source, callback parameter or UI control
+	 * that could provide sensitive data, the data flow analysis is skipped.
+	 * Whether a source can actually reach a sink is not checked. If a dex
+	 * file is malformed, all sources and sinks are kept.
+	 * @param archive The apk file
+	 * @throws IOException Thrown if the dex files cannot be read
+	 */
+	private void pruneSourcesSinks(ApkArchive archive) throws IOException {
+		DexReferenceParser dexParser = new DexReferenceParser();
+		try {
+			dexParser.parse(archive);
+		}
+		catch (RuntimeException ex) {
+			System.err.println("Could not read the method references of " + apkFileLocation
+					+ ", keeping all sources and sinks: " + ex.getMessage());
+			return;
+		}
+		Set<String> referencedMethods = dexParser.getReferencedMethods();
+		if (referencedMethods.isEmpty()) {
+			System.err.println("No method references found in " + apkFileLocation
+					+ ", keeping all sources and sinks");
+			return;
+		}
+		
+		int sourceCount = sources.size();
+		int sinkCount = sinks.size();
+		dexParser.removeUnreferencedMethods(sources);
+		dexParser.removeUnreferencedMethods(sinks);
+		System.out.println("Dropped " + (sourceCount - sources.size()) + " of " + sourceCount
+				+ " sources and " + (sinkCount - sinks.size()) + " of " + sinkCount
+				+ " sinks not referenced by the app");
+		
+		// Data can only leak if the app calls a sink and obtains data from a
+		// source, a callback parameter or a UI control
+		boolean hasSources = !sources.isEmpty()
+				|| (this.layoutMatchingMode != LayoutMatchingMode.NoMatch
+						&& referencedMethods.contains("findViewById(int)"));
+		for (Set<AndroidMethod> methods : this.callbackMethods.values())
+			for (AndroidMethod am : methods)
+				if (!am.getParameters().isEmpty())
+					hasSources = true;
+		this.flowPossible = hasSources && !sinks.isEmpty();
+	}
+
 	/**
 	 * Initializes soot for running the soot-based phases of the application
 	 * metadata analysis
@@ -246,7 +546,7 @@ public class SetupApplication {
 		Options.v().set_output_format(Options.output_format_none);
 		Options.v().set_whole_program(true);
 		Options.v().set_soot_classpath(apkFileLocation + File.pathSeparator
-				+ Scene.v().getAndroidJarPath(androidJar, apkFileLocation));
+				+ this.platformJar);
 		Options.v().set_android_jars(androidJar);
 		Options.v().set_src_prec(Options.src_prec_apk);
 		Options.v().set_process_dir(Arrays.asList(this.entrypoints.toArray()));
@@ -265,6 +565,21 @@ public class SetupApplication {
 		return entryPoint;
 	}
 
+	/**
+	 * Replaces the dummy main method in the current Scene with a new one that
+	 * also calls the callbacks found so far
+	 * @param oldDummyMain The dummy main method to replace
+	 * @return The new dummy main method
+	 */
+	private SootMethod updateDummyMain(SootMethod oldDummyMain) {
+		if (oldDummyMain != null && oldDummyMain.getDeclaringClass().isInScene())
+			Scene.v().removeClass(oldDummyMain.getDeclaringClass());
+		
+		SootMethod entryPoint = getEntryPointCreator().createDummyMain();
+		Scene.v().setEntryPoints(Collections.singletonList(entryPoint));
+		return entryPoint;
+	}
+
 	/**
 	 * Runs the data flow analysis
 	 * @return The results of the data flow analysis
@@ -280,10 +595,16 @@ public class SetupApplication {
 	 * @return The results of the data flow analysis
 	 */
 	public InfoflowResults runInfoflow(ResultsAvailableHandler onResultsAvailable){
+		if (!this.flowPossible) {
+			System.out.println("No source or no sink is referenced by " + apkFileLocation
+					+ ", skipping the data flow analysis");
+			return new InfoflowResults();
+		}
+		
 		System.out.println("Running data flow analysis on " + apkFileLocation + " with "
 				+ sources.size() + " sources and " + sinks.size() + " sinks...");
 		soot.jimple.infoflow.Infoflow info = new soot.jimple.infoflow.Infoflow(androidJar, false);
-		String path = apkFileLocation + File.pathSeparator + Scene.v().getAndroidJarPath(androidJar, apkFileLocation);
+		String path = apkFileLocation + File.pathSeparator + getPlatformJar();
 		
 		try {
 			if (this.taintWrapperFile != null && !this.taintWrapperFile.isEmpty())
@@ -298,7 +619,7 @@ public class SetupApplication {
 			
 			AndroidSourceSinkManager sourceSinkManager = new AndroidSourceSinkManager
 				(sources, sinks, callbacks, false,
-				LayoutMatchingMode.MatchSensitiveOnly, layoutControls);
+				layoutMatchingMode, layoutControls);
 			sourceSinkManager.setAppPackageName(this.appPackageName);
 			sourceSinkManager.setResourcePackages(this.resourcePackages);
 			
@@ -315,6 +636,17 @@ public class SetupApplication {
 		}
 	}
 
+	/**
+	 * Gets the platform jar against which the app is analyzed. The jar is
+	 * determined once during the entry point calculation and then reused.
+	 * @return The path of the platform jar
+	 */
+	private String getPlatformJar() {
+		if (this.platformJar == null || this.platformJar.isEmpty())
+			this.platformJar = Scene.v().getAndroidJarPath(androidJar, apkFileLocation);
+		return this.platformJar;
+	}
+
 	private AndroidEntryPointCreator getEntryPointCreator() {
 		AndroidEntryPointCreator entryPointCreator = new AndroidEntryPointCreator
 			(new ArrayList<String>(this.entrypoints));
@@ -338,5 +670,16 @@ public class SetupApplication {
 	public void setPathTracking(PathTrackingMethod method) {
 		this.pathTracking = method;
 	}
+	
+	/**
+	 * Sets whether and how the controls in the application's layout files
+	 * shall be treated as sources. This also determines which parts of the
+	 * resource file need to be loaded, so it must be set before the entry
+	 * points are calculated.
+	 * @param mode The mode for matching layout controls
+	 */
+	public void setLayoutMatchingMode(LayoutMatchingMode mode) {
+		this.layoutMatchingMode = mode;
+	}
 
 }
@@ -16,6 +16,7 @@ import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -32,6 +33,7 @@ import soot.jimple.infoflow.InfoflowResults;
 import soot.jimple.infoflow.InfoflowResults.SinkInfo;
 import soot.jimple.infoflow.InfoflowResults.SourceInfo;
 import soot.jimple.infoflow.android.SetupApplication;
+import soot.jimple.infoflow.android.cache.ApkMetadataCache;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 
@@ -87,6 +89,12 @@ public class Test {
 	
 	private static int timeout = -1;
 	private static int sysTimeout = -1;
+	private static String metadataCacheDir = null;
+	private static boolean incrementalCallbacks = false;
+	private static boolean pruneSourcesSinks = false;
+	private static boolean permissionFiltering = false;
+	private static int callbackThreads = 1;
+	private static int layoutThreads = 1;
 	
 	private static boolean DEBUG = false;
 
@@ -267,6 +275,30 @@ public class Test {
 				sysTimeout = Integer.valueOf(args[i+1]);
 				i += 2;
 			}
+			else if (args[i].equalsIgnoreCase("--metadatacache")) {
+				metadataCacheDir = args[i+1];
+				i += 2;
+			}
+			else if (args[i].equalsIgnoreCase("--incrementalcallbacks")) {
+				incrementalCallbacks = true;
+				i++;
+			}
+			else if (args[i].equalsIgnoreCase("--callbackthreads")) {
+				callbackThreads = Integer.valueOf(args[i+1]);
+				i += 2;
+			}
+			else if (args[i].equalsIgnoreCase("--layoutthreads")) {
+				layoutThreads = Integer.valueOf(args[i+1]);
+				i += 2;
+			}
+			else if (args[i].equalsIgnoreCase("--prunesourcessinks")) {
+				pruneSourcesSinks = true;
+				i++;
+			}
+			else if (args[i].equalsIgnoreCase("--permissionfiltering")) {
+				permissionFiltering = true;
+				i++;
+			}
 			else
 				i++;
 		}
@@ -290,6 +322,13 @@ public class Test {
 				final SetupApplication app = new SetupApplication();
 				app.setApkFileLocation(fileName);
 				app.setAndroidJar(androidJar);
+				if (metadataCacheDir != null)
+					app.setMetadataCache(new ApkMetadataCache(new File(metadataCacheDir)));
+				app.setIncrementalCallbackAnalysis(incrementalCallbacks);
+				app.setCallbackThreadCount(callbackThreads);
+				app.setLayoutThreadCount(layoutThreads);
+				app.setPruneSourcesSinks(pruneSourcesSinks);
+				app.setPermissionFiltering(permissionFiltering);
 				if (new File("../soot-infoflow/EasyTaintWrapperSource.txt").exists())
 					app.setTaintWrapperFile("../soot-infoflow/EasyTaintWrapperSource.txt");
 				else
@@ -355,6 +394,33 @@ public class Test {
 				"soot.jimple.infoflow.android.TestApps.Test",
 				fileName,
 				androidJar };
+		if (metadataCacheDir != null) {
+			command = Arrays.copyOf(command, command.length + 2);
+			command[command.length - 2] = "--METADATACACHE";
+			command[command.length - 1] = metadataCacheDir;
+		}
+		if (incrementalCallbacks) {
+			command = Arrays.copyOf(command, command.length + 1);
+			command[command.length - 1] = "--INCREMENTALCALLBACKS";
+		}
+		if (callbackThreads > 1) {
+			command = Arrays.copyOf(command, command.length + 2);
+			command[command.length - 2] = "--CALLBACKTHREADS";
+			command[command.length - 1] = String.valueOf(callbackThreads);
+		}
+		if (layoutThreads > 1) {
+			command = Arrays.copyOf(command, command.length + 2);
+			command[command.length - 2] = "--LAYOUTTHREADS";
+			command[command.length - 1] = String.valueOf(layoutThreads);
+		}
+		if (pruneSourcesSinks) {
+			command = Arrays.copyOf(command, command.length + 1);
+			command[command.length - 1] = "--PRUNESOURCESSINKS";
+		}
+		if (permissionFiltering) {
+			command = Arrays.copyOf(command, command.length + 1);
+			command[command.length - 1] = "--PERMISSIONFILTERING";
+		}
 		System.out.println("Running command: " + executable + " " + command);
 		try {
 			ProcessBuilder pb = new ProcessBuilder(command);
@@ -378,6 +444,13 @@ public class Test {
 			final SetupApplication app = new SetupApplication();
 			app.setApkFileLocation(fileName);
 			app.setAndroidJar(androidJar);
+			if (metadataCacheDir != null)
+				app.setMetadataCache(new ApkMetadataCache(new File(metadataCacheDir)));
+			app.setIncrementalCallbackAnalysis(incrementalCallbacks);
+			app.setCallbackThreadCount(callbackThreads);
+			app.setLayoutThreadCount(layoutThreads);
+			app.setPruneSourcesSinks(pruneSourcesSinks);
+			app.setPermissionFiltering(permissionFiltering);
 			if (new File("../soot-infoflow/EasyTaintWrapperSource.txt").exists())
 				app.setTaintWrapperFile("../soot-infoflow/EasyTaintWrapperSource.txt");
 			else
@@ -407,6 +480,12 @@ public class Test {
 		System.out.println("Optional further parameters:");
 		System.out.println("\t--TIMEOUT n Time out after n seconds");
 		System.out.println("\t--SYSTIMEOUT n Hard time out (kill process) after n seconds, Unix only");
+		System.out.println("\t--METADATACACHE dir Cache the app metadata in the given directory");
+		System.out.println("\t--INCREMENTALCALLBACKS Do not reload the app between the callback analysis iterations");
+		System.out.println("\t--CALLBACKTHREADS n Analyze the callback registrations with n threads");
+		System.out.println("\t--LAYOUTTHREADS n Decode the layout XML files with n threads");
+		System.out.println("\t--PRUNESOURCESSINKS Drop the sources and sinks the app never references");
+		System.out.println("\t--PERMISSIONFILTERING Drop the sources and sinks requiring permissions the app does not declare");
 	}
 
 }
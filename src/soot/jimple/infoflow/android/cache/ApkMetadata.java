@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.cache;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.infoflow.android.resources.LayoutControl;
+
+/**
+ * Metadata extracted from an Android application that can be stored in the
+ * {@link ApkMetadataCache}. This comprises the data from the manifest, the
+ * resource table, and the results of the layout file analysis.
+ */
+public class ApkMetadata {
+
+	private String packageName = "";
+	private String applicationName = "";
+	private Set<String> entryPointClasses = new HashSet<String>();
+	private Set<String> permissions = new HashSet<String>();
+
+	private ByteBuffer resourceTable = null;
+
+	private boolean hasLayoutData = false;
+	private Map<Integer, String> layoutControlClasses = new HashMap<Integer, String>();
+	private Set<Integer> sensitiveLayoutControls = new HashSet<Integer>();
+	private Map<String, Set<String>> layoutCallbacks = new HashMap<String, Set<String>>();
+
+	public String getPackageName() {
+		return this.packageName;
+	}
+
+	public void setPackageName(String packageName) {
+		this.packageName = packageName;
+	}
+
+	public String getApplicationName() {
+		return this.applicationName;
+	}
+
+	public void setApplicationName(String applicationName) {
+		this.applicationName = applicationName;
+	}
+
+	public Set<String> getEntryPointClasses() {
+		return this.entryPointClasses;
+	}
+
+	public void setEntryPointClasses(Set<String> entryPointClasses) {
+		this.entryPointClasses = entryPointClasses;
+	}
+
+	public Set<String> getPermissions() {
+		return this.permissions;
+	}
+
+	public void setPermissions(Set<String> permissions) {
+		this.permissions = permissions;
+	}
+
+	/**
+	 * Gets the binary resource table (resources.arsc) of the application. If
+	 * the metadata has been loaded from the cache, this buffer is mapped
+	 * directly from the cache file.
+	 * @return The binary resource table
+	 */
+	public ByteBuffer getResourceTable() {
+		return this.resourceTable == null ? null : this.resourceTable.duplicate();
+	}
+
+	public void setResourceTable(ByteBuffer resourceTable) {
+		this.resourceTable = resourceTable;
+	}
+
+	/**
+	 * Gets whether this object contains the results of the layout file
+	 * analysis. These results depend on the application's code and are thus
+	 * not available if only the resources of the application are unchanged.
+	 * @return True if this object contains the results of the layout file
+	 * analysis, otherwise false
+	 */
+	public boolean hasLayoutData() {
+		return this.hasLayoutData;
+	}
+
+	/**
+	 * Sets the results of the layout file analysis
+	 * @param layoutControls The layout controls found in the layout files
+	 * @param layoutCallbacks The callback methods registered in the layout
+	 * files, as a mapping from layout file names to method names
+	 */
+	public void setLayoutData(Map<Integer, LayoutControl> layoutControls,
+			Map<String, Set<String>> layoutCallbacks) {
+		this.layoutControlClasses.clear();
+		this.sensitiveLayoutControls.clear();
+		for (Entry<Integer, LayoutControl> entry : layoutControls.entrySet()) {
+			LayoutControl control = entry.getValue();
+			this.layoutControlClasses.put(entry.getKey(), control.getViewClass() == null
+					? null : control.getViewClass().getName());
+			if (control.isSensitive())
+				this.sensitiveLayoutControls.add(entry.getKey());
+		}
+		this.layoutCallbacks = layoutCallbacks;
+		this.hasLayoutData = true;
+	}
+
+	/**
+	 * Creates the layout controls for the current Soot instance. The view
+	 * classes are resolved in the current scene.
+	 * @return The layout controls found in the application's layout files
+	 */
+	public Map<Integer, LayoutControl> createLayoutControls() {
+		Map<Integer, LayoutControl> controls = new HashMap<Integer, LayoutControl>
+				(this.layoutControlClasses.size());
+		for (Entry<Integer, String> entry : this.layoutControlClasses.entrySet()) {
+			SootClass viewClass = entry.getValue() == null ? null
+					: Scene.v().forceResolve(entry.getValue(), SootClass.SIGNATURES);
+			controls.put(entry.getKey(), new LayoutControl(entry.getKey(), viewClass,
+					this.sensitiveLayoutControls.contains(entry.getKey())));
+		}
+		return controls;
+	}
+
+	/**
+	 * Gets the callback methods registered in the application's layout
+	 * files
+	 * @return A mapping from layout file names to callback method names
+	 */
+	public Map<String, Set<String>> getLayoutCallbacks() {
+		return this.layoutCallbacks;
+	}
+
+	Map<Integer, String> getLayoutControlClasses() {
+		return this.layoutControlClasses;
+	}
+
+	Set<Integer> getSensitiveLayoutControls() {
+		return this.sensitiveLayoutControls;
+	}
+
+	void setHasLayoutData(boolean hasLayoutData) {
+		this.hasLayoutData = hasLayoutData;
+	}
+
+}
@@ -0,0 +1,521 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+import soot.jimple.infoflow.android.resources.ApkArchive;
+
+/**
+ * Persistent on-disk cache for the metadata of Android applications. Every
+ * application is stored in a file of its own which is named after the
+ * SHA-256 digest of the contents of the application's manifest and resource
+ * entries. The results of the layout file analysis additionally depend on
+ * the application's code and the Android platform, so they are only used if
+ * the digest of these inputs matches as well.
+ *
+ * The files are written in a binary format that is read through a memory
+ * map. If the total size of the cache exceeds the configured limit, the
+ * least recently used files are deleted.
+ */
+public class ApkMetadataCache {
+
+	private static final int MAGIC = 0x46444d43;	// "FDMC"
+	private static final int FORMAT_VERSION = 1;
+	private static final String FILE_EXTENSION = ".apkmeta";
+
+	/**
+	 * The default maximum size of the cache in bytes
+	 */
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	private final File cacheDir;
+	private final long maxSize;
+
+	private ApkArchive lastArchive = null;
+	private String lastAndroidJar = null;
+	private byte[][] lastDigests = null;
+
+	/**
+	 * Creates a new cache in the given directory with the default maximum
+	 * size
+	 * @param cacheDir The directory in which to store the cache files
+	 */
+	public ApkMetadataCache(File cacheDir) {
+		this(cacheDir, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a new cache in the given directory
+	 * @param cacheDir The directory in which to store the cache files
+	 * @param maxSize The maximum total size of all cache files in bytes
+	 */
+	public ApkMetadataCache(File cacheDir, long maxSize) {
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Loads the metadata of the given application from the cache
+	 * @param apkFile The application for which to load the metadata
+	 * @param androidJar The Android platform JAR file against which the
+	 * application is analyzed
+	 * @return The cached metadata or null if there is no valid cache entry
+	 * for the given application. The layout data is only available if the
+	 * application's code and the platform have not changed.
+	 */
+	public ApkMetadata load(String apkFile, String androidJar) {
+		ApkArchive archive = openArchive(apkFile);
+		if (archive == null)
+			return null;
+		try {
+			return load(archive, androidJar);
+		}
+		finally {
+			closeArchive(archive);
+		}
+	}
+
+	/**
+	 * Loads the metadata of the given, already opened application from the
+	 * cache
+	 * @param archive The application for which to load the metadata
+	 * @param androidJar The Android platform JAR file against which the
+	 * application is analyzed
+	 * @return The cached metadata or null if there is no valid cache entry
+	 * for the given application. The layout data is only available if the
+	 * application's code and the platform have not changed.
+	 */
+	public ApkMetadata load(ApkArchive archive, String androidJar) {
+		byte[][] digests = computeDigests(archive, androidJar);
+		if (digests == null)
+			return null;
+		File cacheFile = getCacheFile(digests[0]);
+		if (!cacheFile.exists())
+			return null;
+
+		try {
+			ApkMetadata metadata = readCacheFile(cacheFile, digests[0], digests[1]);
+			if (metadata == null) {
+				System.err.println("Discarding invalid metadata cache file " + cacheFile);
+				cacheFile.delete();
+				return null;
+			}
+
+			// Record the access for the LRU eviction
+			cacheFile.setLastModified(System.currentTimeMillis());
+			return metadata;
+		}
+		catch (Exception ex) {
+			System.err.println("Could not read metadata cache file " + cacheFile
+					+ ": " + ex.getMessage());
+			cacheFile.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the metadata of the given application in the cache. Errors
+	 * are reported, but do not abort the analysis.
+	 * @param apkFile The application to which the metadata belongs
+	 * @param androidJar The Android platform JAR file against which the
+	 * application has been analyzed
+	 * @param metadata The metadata to store. If the metadata does not
+	 * contain the resource table, it is read from the application.
+	 */
+	public void store(String apkFile, String androidJar, ApkMetadata metadata) {
+		ApkArchive archive = openArchive(apkFile);
+		if (archive == null)
+			return;
+		try {
+			store(archive, androidJar, metadata);
+		}
+		finally {
+			closeArchive(archive);
+		}
+	}
+
+	/**
+	 * Stores the metadata of the given, already opened application in the
+	 * cache. Errors are reported, but do not abort the analysis.
+	 * @param archive The application to which the metadata belongs
+	 * @param androidJar The Android platform JAR file against which the
+	 * application has been analyzed
+	 * @param metadata The metadata to store. If the metadata does not
+	 * contain the resource table, it is taken from the application.
+	 */
+	public void store(ApkArchive archive, String androidJar, ApkMetadata metadata) {
+		byte[][] digests = computeDigests(archive, androidJar);
+		if (digests == null)
+			return;
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			System.err.println("Could not create metadata cache directory " + cacheDir);
+			return;
+		}
+
+		File cacheFile = getCacheFile(digests[0]);
+		File tempFile = null;
+		try {
+			// Other processes may write the same entry at the same time, so
+			// every writer needs a temporary file of its own
+			tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+			ByteBuffer resourceTable = metadata.getResourceTable();
+			if (resourceTable == null)
+				resourceTable = archive.getBuffer("resources.arsc");
+			writeCacheFile(tempFile, digests[0], digests[1], metadata, resourceTable);
+
+			// Replace the old entry, if any
+			cacheFile.delete();
+			if (!tempFile.renameTo(cacheFile))
+				throw new IOException("Could not rename " + tempFile + " to " + cacheFile);
+		}
+		catch (IOException ex) {
+			System.err.println("Could not write metadata cache file " + cacheFile
+					+ ": " + ex.getMessage());
+			if (tempFile != null)
+				tempFile.delete();
+			return;
+		}
+
+		evict(cacheFile);
+	}
+
+	/**
+	 * Deletes the least recently used cache files until the total size of
+	 * the cache is below the maximum size
+	 * @param keep A file that shall never be deleted
+	 */
+	private void evict(File keep) {
+		File[] files = cacheDir.listFiles();
+		if (files == null)
+			return;
+
+		List<File> cacheFiles = new ArrayList<File>();
+		long totalSize = 0;
+		for (File f : files)
+			if (f.isFile() && f.getName().endsWith(FILE_EXTENSION)) {
+				cacheFiles.add(f);
+				totalSize += f.length();
+			}
+		if (totalSize <= maxSize)
+			return;
+
+		Collections.sort(cacheFiles, new Comparator<File>() {
+
+			@Override
+			public int compare(File o1, File o2) {
+				long diff = o1.lastModified() - o2.lastModified();
+				return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+			}
+
+		});
+		for (File f : cacheFiles) {
+			if (totalSize <= maxSize)
+				break;
+			if (f.equals(keep))
+				continue;
+			long size = f.length();
+			if (f.delete())
+				totalSize -= size;
+		}
+	}
+
+	private ApkArchive openArchive(String apkFile) {
+		try {
+			return new ApkArchive(apkFile);
+		}
+		catch (IOException ex) {
+			System.err.println("Could not read apk file " + apkFile + ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private void closeArchive(ApkArchive archive) {
+		try {
+			archive.close();
+		}
+		catch (IOException ex) {
+			System.err.println("Could not close apk file " + archive.getFileName()
+					+ ": " + ex.getMessage());
+		}
+	}
+
+	private File getCacheFile(byte[] resourceDigest) {
+		return new File(cacheDir, toHexString(resourceDigest) + FILE_EXTENSION);
+	}
+
+	/**
+	 * Computes the digests identifying the given application. The digests
+	 * are computed over the names and contents of the entries. The checksums
+	 * in the zip file's central directory are not enough, since they can be
+	 * kept intact in a modified file. The digests of the last application
+	 * are remembered, so loading and storing its metadata only reads the
+	 * entries once.
+	 * @param archive The application for which to compute the digests
+	 * @param androidJar The Android platform JAR file against which the
+	 * application is analyzed
+	 * @return An array containing the digest of the manifest and resources
+	 * and the digest of the code and platform, or null if the digests could
+	 * not be computed
+	 */
+	private synchronized byte[][] computeDigests(ApkArchive archive, String androidJar) {
+		if (archive == lastArchive && androidJar.equals(lastAndroidJar))
+			return lastDigests;
+
+		try {
+			MessageDigest resourceDigest = MessageDigest.getInstance("SHA-256");
+			MessageDigest codeDigest = MessageDigest.getInstance("SHA-256");
+
+			List<ZipEntry> entries = new ArrayList<ZipEntry>(archive.getEntries());
+			Collections.sort(entries, new Comparator<ZipEntry>() {
+
+				@Override
+				public int compare(ZipEntry o1, ZipEntry o2) {
+					return o1.getName().compareTo(o2.getName());
+				}
+
+			});
+
+			for (ZipEntry entry : entries) {
+				String name = entry.getName();
+				if (name.equals("AndroidManifest.xml")
+						|| name.equals("resources.arsc")
+						|| name.startsWith("res/"))
+					updateDigest(resourceDigest, archive, entry);
+				else if (name.startsWith("classes") && name.endsWith(".dex"))
+					updateDigest(codeDigest, archive, entry);
+			}
+
+			// The layout analysis resolves classes from the platform as well
+			File jarFile = new File(androidJar);
+			codeDigest.update(getBytes(jarFile.getAbsolutePath() + "|" + jarFile.length()
+					+ "|" + jarFile.lastModified()));
+
+			lastArchive = archive;
+			lastAndroidJar = androidJar;
+			lastDigests = new byte[][] { resourceDigest.digest(), codeDigest.digest() };
+			return lastDigests;
+		}
+		catch (NoSuchAlgorithmException ex) {
+			System.err.println("SHA-256 is not available: " + ex.getMessage());
+			return null;
+		}
+		catch (IOException ex) {
+			System.err.println("Could not read apk file " + archive.getFileName()
+					+ ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	private void updateDigest(MessageDigest digest, ApkArchive archive, ZipEntry entry)
+			throws IOException {
+		// The entries are not kept in the archive, since most of them are
+		// not needed if the cache contains the application
+		ByteBuffer data = archive.getTransientBuffer(entry.getName());
+		digest.update(getBytes(entry.getName() + "|" + data.remaining() + "\n"));
+		digest.update(data);
+	}
+
+	private byte[] getBytes(String str) {
+		try {
+			return str.getBytes("UTF-8");
+		}
+		catch (UnsupportedEncodingException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private String toHexString(byte[] data) {
+		StringBuilder sb = new StringBuilder(data.length * 2);
+		for (byte b : data) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private void writeCacheFile(File file, byte[] resourceDigest, byte[] codeDigest,
+			ApkMetadata metadata, ByteBuffer resourceTable) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream
+				(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.write(resourceDigest);
+			out.write(codeDigest);
+
+			// Manifest data
+			writeString(out, metadata.getPackageName());
+			writeString(out, metadata.getApplicationName());
+			writeStrings(out, metadata.getEntryPointClasses());
+			writeStrings(out, metadata.getPermissions());
+
+			// Resource table
+			if (resourceTable == null)
+				out.writeInt(-1);
+			else {
+				ByteBuffer table = resourceTable.duplicate();
+				byte[] data = new byte[table.remaining()];
+				table.get(data);
+				out.writeInt(data.length);
+				out.write(data);
+			}
+
+			// Layout data
+			out.writeBoolean(metadata.hasLayoutData());
+			if (metadata.hasLayoutData()) {
+				Map<Integer, String> controls = metadata.getLayoutControlClasses();
+				out.writeInt(controls.size());
+				for (Entry<Integer, String> entry : controls.entrySet()) {
+					out.writeInt(entry.getKey());
+					writeString(out, entry.getValue());
+					out.writeBoolean(metadata.getSensitiveLayoutControls().contains(entry.getKey()));
+				}
+
+				Map<String, Set<String>> callbacks = metadata.getLayoutCallbacks();
+				out.writeInt(callbacks.size());
+				for (Entry<String, Set<String>> entry : callbacks.entrySet()) {
+					writeString(out, entry.getKey());
+					writeStrings(out, entry.getValue());
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private void writeString(DataOutputStream out, String str) throws IOException {
+		if (str == null)
+			out.writeInt(-1);
+		else {
+			out.writeInt(str.length());
+			out.writeChars(str);
+		}
+	}
+
+	private void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String str : strings)
+			writeString(out, str);
+	}
+
+	/**
+	 * Reads the metadata from the given cache file
+	 * @param file The cache file to read
+	 * @param resourceDigest The expected digest of the application's
+	 * manifest and resources
+	 * @param codeDigest The expected digest of the application's code and
+	 * the platform. If this digest does not match, the layout data is not
+	 * loaded.
+	 * @return The metadata from the cache file or null if the file is
+	 * invalid
+	 * @throws IOException Thrown if the file cannot be read
+	 */
+	private ApkMetadata readCacheFile(File file, byte[] resourceDigest, byte[] codeDigest)
+			throws IOException {
+		MappedByteBuffer data;
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			FileChannel channel = fis.getChannel();
+			data = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			fis.close();
+		}
+
+		if (data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION)
+			return null;
+		byte[] storedDigest = new byte[resourceDigest.length];
+		data.get(storedDigest);
+		if (!Arrays.equals(storedDigest, resourceDigest))
+			return null;
+		data.get(storedDigest);
+		boolean codeUnchanged = Arrays.equals(storedDigest, codeDigest);
+
+		ApkMetadata metadata = new ApkMetadata();
+		metadata.setPackageName(readString(data));
+		metadata.setApplicationName(readString(data));
+		metadata.setEntryPointClasses(readStrings(data));
+		metadata.setPermissions(readStrings(data));
+
+		// The resource table is parsed directly from the memory map
+		int tableSize = data.getInt();
+		if (tableSize >= 0) {
+			ByteBuffer table = data.duplicate();
+			table.limit(table.position() + tableSize);
+			metadata.setResourceTable(table.slice());
+			data.position(data.position() + tableSize);
+		}
+
+		if (data.get() != 0 && codeUnchanged) {
+			int controlCount = data.getInt();
+			for (int i = 0; i < controlCount; i++) {
+				int id = data.getInt();
+				metadata.getLayoutControlClasses().put(id, readString(data));
+				if (data.get() != 0)
+					metadata.getSensitiveLayoutControls().add(id);
+			}
+
+			int callbackCount = data.getInt();
+			Map<String, Set<String>> callbacks = new HashMap<String, Set<String>>(callbackCount);
+			for (int i = 0; i < callbackCount; i++) {
+				String layoutFile = readString(data);
+				callbacks.put(layoutFile, readStrings(data));
+			}
+			metadata.getLayoutCallbacks().putAll(callbacks);
+			metadata.setHasLayoutData(true);
+		}
+		return metadata;
+	}
+
+	private String readString(ByteBuffer data) {
+		int len = data.getInt();
+		if (len < 0)
+			return null;
+		char[] chars = new char[len];
+		for (int i = 0; i < len; i++)
+			chars[i] = data.getChar();
+		return new String(chars);
+	}
+
+	private Set<String> readStrings(ByteBuffer data) {
+		int count = data.getInt();
+		Set<String> strings = new HashSet<String>(count);
+		for (int i = 0; i < count; i++)
+			strings.add(readString(data));
+		return strings;
+	}
+
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import soot.SootMethod;
+
+/**
+ * Index over a list of method specifications, e.g. sources or sinks. The
+ * specifications are grouped by class and then by subsignature, so looking up
+ * a method only takes two hash lookups regardless of the number of entries.
+ * The index supports three kinds of entries:
+ * <ul>
+ * <li>Entries with a return type match methods with exactly this
+ * subsignature.</li>
+ * <li>Entries without a return type match methods with the same name and
+ * parameters and an arbitrary return type. In weak matching mode, all entries
+ * are treated like this.</li>
+ * <li>Entries with the method name "*" match all methods of their class,
+ * e.g. <code>&lt;com.example.Data: * *()&gt;</code>.</li>
+ * </ul>
+ */
+public class MethodSpecIndex {
+
+	/**
+	 * The method name that marks an entry as matching all methods of its class
+	 */
+	public static final String WILDCARD = "*";
+
+	/**
+	 * The entries for a single class
+	 */
+	private static class ClassEntries {
+
+		private AndroidMethod wildcard = null;
+		private Map<String, AndroidMethod> bySubSignature = null;
+		private Map<String, AndroidMethod> byNameAndParameters = null;
+
+	}
+
+	private final boolean weakMatching;
+	private final Map<String, ClassEntries> entries = new HashMap<String, ClassEntries>();
+	private int size = 0;
+
+	/**
+	 * Creates a new, empty index
+	 * @param weakMatching True if the return types of the entries shall be
+	 * ignored, otherwise false
+	 */
+	public MethodSpecIndex(boolean weakMatching) {
+		this.weakMatching = weakMatching;
+	}
+
+	/**
+	 * Creates a new index containing the given entries
+	 * @param methods The entries to add to the index
+	 * @param weakMatching True if the return types of the entries shall be
+	 * ignored, otherwise false
+	 */
+	public MethodSpecIndex(Collection<AndroidMethod> methods, boolean weakMatching) {
+		this(weakMatching);
+		addAll(methods);
+	}
+
+	/**
+	 * Adds the given entries to this index. If there already is an entry for
+	 * the same method, the existing entry is kept.
+	 * @param methods The entries to add
+	 */
+	public void addAll(Collection<AndroidMethod> methods) {
+		for (AndroidMethod am : methods)
+			add(am);
+	}
+
+	/**
+	 * Adds the given entry to this index. If there already is an entry for
+	 * the same method, the existing entry is kept.
+	 * @param am The entry to add
+	 */
+	public void add(AndroidMethod am) {
+		String className = am.getClassName().intern();
+		ClassEntries classEntries = entries.get(className);
+		if (classEntries == null) {
+			classEntries = new ClassEntries();
+			entries.put(className, classEntries);
+		}
+
+		if (am.getMethodName().equals(WILDCARD)) {
+			if (classEntries.wildcard == null) {
+				classEntries.wildcard = am;
+				size++;
+			}
+			return;
+		}
+
+		String nameAndParams = getNameAndParameters(am);
+		if (weakMatching || am.getReturnType().isEmpty()) {
+			if (classEntries.byNameAndParameters == null)
+				classEntries.byNameAndParameters = new HashMap<String, AndroidMethod>(4);
+			if (!classEntries.byNameAndParameters.containsKey(nameAndParams)) {
+				classEntries.byNameAndParameters.put(nameAndParams.intern(), am);
+				size++;
+			}
+		}
+		else {
+			String subSig = am.getReturnType() + " " + nameAndParams;
+			if (classEntries.bySubSignature == null)
+				classEntries.bySubSignature = new HashMap<String, AndroidMethod>(4);
+			if (!classEntries.bySubSignature.containsKey(subSig)) {
+				classEntries.bySubSignature.put(subSig.intern(), am);
+				size++;
+			}
+		}
+	}
+
+	/**
+	 * Gets the method name and parameters of the given entry in the format
+	 * used by Soot's subsignatures, e.g. "foo(int,java.lang.String)"
+	 * @param am The entry
+	 * @return The method name and parameters of the given entry
+	 */
+	public static String getNameAndParameters(AndroidMethod am) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(am.getMethodName());
+		sb.append('(');
+		boolean first = true;
+		for (String param : am.getParameters()) {
+			if (!first)
+				sb.append(',');
+			sb.append(param);
+			first = false;
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the entry that matches the given method
+	 * @param sm The method to look up
+	 * @return The entry matching the given method, or null if there is no
+	 * such entry
+	 */
+	public AndroidMethod getMatch(SootMethod sm) {
+		ClassEntries classEntries = entries.get(sm.getDeclaringClass().getName());
+		if (classEntries == null)
+			return null;
+		return getMatch(classEntries, sm.getSubSignature());
+	}
+
+	/**
+	 * Gets the entry that matches the method with the given subsignature in
+	 * the given class
+	 * @param className The name of the class declaring the method
+	 * @param subSignature The subsignature of the method to look up, e.g.
+	 * "void foo(int)"
+	 * @return The entry matching the given method, or null if there is no
+	 * such entry
+	 */
+	public AndroidMethod getMatch(String className, String subSignature) {
+		ClassEntries classEntries = entries.get(className);
+		if (classEntries == null)
+			return null;
+		return getMatch(classEntries, subSignature);
+	}
+
+	private AndroidMethod getMatch(ClassEntries classEntries, String subSignature) {
+		if (classEntries.bySubSignature != null) {
+			AndroidMethod am = classEntries.bySubSignature.get(subSignature);
+			if (am != null)
+				return am;
+		}
+		if (classEntries.byNameAndParameters != null) {
+			AndroidMethod am = classEntries.byNameAndParameters.get
+					(subSignature.substring(subSignature.indexOf(' ') + 1));
+			if (am != null)
+				return am;
+		}
+		return classEntries.wildcard;
+	}
+
+	/**
+	 * Checks whether the given method matches an entry in this index
+	 * @param sm The method to check
+	 * @return True if the given method matches an entry in this index,
+	 * otherwise false
+	 */
+	public boolean matches(SootMethod sm) {
+		return getMatch(sm) != null;
+	}
+
+	/**
+	 * Gets the names of all classes for which this index contains entries
+	 * @return The names of all classes with entries in this index
+	 */
+	public Set<String> getClassNames() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	/**
+	 * Gets the number of entries in this index
+	 * @return The number of entries in this index
+	 */
+	public int size() {
+		return this.size;
+	}
+
+}
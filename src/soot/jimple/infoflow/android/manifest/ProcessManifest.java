@@ -10,14 +10,10 @@
  ******************************************************************************/
 package soot.jimple.infoflow.android.manifest;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -29,6 +25,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 import org.xmlpull.v1.XmlPullParser;
 
+import soot.jimple.infoflow.android.resources.ApkArchive;
 import test.AXMLPrinter;
 import android.content.res.AXmlResourceParser;
 
@@ -48,38 +45,44 @@ public class ProcessManifest {
 	 * @author Steven Arzt
 	 */
 	private void handleAndroidManifestFile(String apk, IManifestHandler handler) {
-		File apkF = new File(apk);
-		if (!apkF.exists())
-			throw new RuntimeException("file '" + apk + "' does not exist!");
-
-		boolean found = false;
+		ApkArchive archive = null;
 		try {
-			ZipFile archive = null;
+			archive = new ApkArchive(apk);
+			handleAndroidManifestFile(archive, handler);
+		}
+		catch (IOException e) {
+			throw new RuntimeException(
+					"Error when looking for manifest in apk: " + e);
+		}
+		finally {
 			try {
-				archive = new ZipFile(apkF);
-				Enumeration<?> entries = archive.entries();
-				while (entries.hasMoreElements()) {
-					ZipEntry entry = (ZipEntry) entries.nextElement();
-					String entryName = entry.getName();
-					// We are dealing with the Android manifest
-					if (entryName.equals("AndroidManifest.xml")) {
-						found = true;
-						handler.handleManifest(archive.getInputStream(entry));
-						break;
-					}
-				}
-			}
-			finally {
 				if (archive != null)
 					archive.close();
 			}
+			catch (IOException e) {
+				System.err.println("Could not close apk file: " + e.getMessage());
+			}
 		}
-		catch (Exception e) {
+	}
+	
+	/**
+	 * Provides the given handler with a stream for accessing the android
+	 * manifest file in the given, already opened apk file
+	 * @param archive The apk file to process
+	 * @param handler The handler for processing the apk file
+	 */
+	private void handleAndroidManifestFile(ApkArchive archive, IManifestHandler handler) {
+		InputStream manifestIS;
+		try {
+			manifestIS = archive.getInputStream("AndroidManifest.xml");
+		}
+		catch (IOException e) {
 			throw new RuntimeException(
 					"Error when looking for manifest in apk: " + e);
 		}
-		if (!found)
+		if (manifestIS == null)
 			throw new RuntimeException("No manifest file found in apk");
+		handler.handleManifest(manifestIS);
 	}
 	
 	public void loadManifestFile(String apk) {
@@ -93,6 +96,21 @@ public class ProcessManifest {
 		});
 	}
 	
+	/**
+	 * Loads the manifest file from the given, already opened apk file
+	 * @param archive The apk file from which to load the manifest
+	 */
+	public void loadManifestFile(ApkArchive archive) {
+		handleAndroidManifestFile(archive, new IManifestHandler() {
+			
+			@Override
+			public void handleManifest(InputStream stream) {
+				loadClassesFromBinaryManifest(stream);
+			}
+			
+		});
+	}
+	
 	protected void loadClassesFromBinaryManifest(InputStream manifestIS) {
 		try {
 			AXmlResourceParser parser = new AXmlResourceParser();
@@ -10,13 +10,27 @@
  ******************************************************************************/
 package soot.jimple.infoflow.android.resources;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -30,6 +44,8 @@ public class ARSCFileParser extends AbstractResourceParser {
 	
 	private final static boolean DEBUG = false;
 
+	protected final static int RES_TABLE_HEADER_SIZE = 12;
+
 	protected final static int RES_STRING_POOL_TYPE = 0x0001;
 	protected final static int RES_TABLE_TYPE = 0x0002;
 	protected final static int RES_TABLE_PACKAGE_TYPE = 0x0200;
@@ -41,6 +57,11 @@ public class ARSCFileParser extends AbstractResourceParser {
 	
 	protected final static int SPEC_PUBLIC = 0x40000000;
 	
+	/**
+	 * Internal marker for complex resources that consist of a set of
+	 * name/value mappings. This is not a data type defined by Android.
+	 */
+	private final static int TYPE_COMPLEX = -1;
 	/**
 	 * Contains no data
 	 */
@@ -224,14 +245,160 @@ public class ARSCFileParser extends AbstractResourceParser {
 	 */
 	public final static int FLAG_PUBLIC = 0x0002;
 
-	private final Map<Integer, String> stringTable = new HashMap<Integer, String>();
+	private StringPool stringTable = new StringPool();
+	
+	/**
+	 * The names of the resource types to load or null to load all types
+	 */
+	private final Set<String> typeFilter;
+	
+	/**
+	 * A string pool inside an Android resource file. Strings are only
+	 * decoded from the underlying data when they are accessed for the first
+	 * time.
+	 */
+	private class StringPool {
+		private final ByteBuffer data;
+		private final int[] offsets;
+		private final boolean utf8;
+		private final String[] strings;
+		
+		/**
+		 * Creates a new, empty string pool
+		 */
+		public StringPool() {
+			this(null, new int[0], false);
+		}
+		
+		/**
+		 * Creates a new string pool
+		 * @param data The buffer containing the string data
+		 * @param offsets The offsets of the strings in the buffer
+		 * @param utf8 True if the strings are encoded in UTF-8, false if they
+		 * are encoded in UTF-16
+		 */
+		public StringPool(ByteBuffer data, int[] offsets, boolean utf8) {
+			this.data = data;
+			this.offsets = offsets;
+			this.utf8 = utf8;
+			this.strings = new String[offsets.length];
+		}
+		
+		/**
+		 * Gets the number of strings in this pool
+		 * @return The number of strings in this pool
+		 */
+		public int size() {
+			return this.offsets.length;
+		}
+		
+		/**
+		 * Gets the string with the given index
+		 * @param idx The index of the string to get
+		 * @return The string with the given index or null if there is no
+		 * such string
+		 */
+		public String get(int idx) {
+			if (idx < 0 || idx >= this.offsets.length)
+				return null;
+			String str = this.strings[idx];
+			if (str == null) {
+				try {
+					if (this.utf8)
+						str = readStringUTF8(this.data, this.offsets[idx]).trim();
+					else
+						str = readString(this.data, this.offsets[idx]).trim();
+				}
+				catch (IOException ex) {
+					throw new RuntimeException("Could not read string from resource file", ex);
+				}
+				this.strings[idx] = str;
+			}
+			return str;
+		}
+		
+	}
+	
+	/**
+	 * Read-only map view on the global string pool
+	 */
+	private class StringPoolMap extends AbstractMap<Integer, String> {
+		
+		@Override
+		public int size() {
+			return stringTable.size();
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Integer && stringTable.get((Integer) key) != null;
+		}
+		
+		@Override
+		public String get(Object key) {
+			if (key instanceof Integer)
+				return stringTable.get((Integer) key);
+			return null;
+		}
+		
+		@Override
+		public Set<Entry<Integer, String>> entrySet() {
+			return new AbstractSet<Entry<Integer, String>>() {
+				
+				@Override
+				public int size() {
+					return stringTable.size();
+				}
+				
+				@Override
+				public Iterator<Entry<Integer, String>> iterator() {
+					final StringPool pool = stringTable;
+					return new Iterator<Entry<Integer, String>>() {
+						private int idx = 0;
+						
+						@Override
+						public boolean hasNext() {
+							return idx < pool.size();
+						}
+						
+						@Override
+						public Entry<Integer, String> next() {
+							if (!hasNext())
+								throw new NoSuchElementException();
+							Entry<Integer, String> entry = new SimpleImmutableEntry<Integer, String>
+									(idx, pool.get(idx));
+							idx++;
+							return entry;
+						}
+						
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		}
+		
+	}
 	private final List<ResPackage> packages = new ArrayList<ResPackage>();
 	
+	/**
+	 * Lookup table mapping package IDs to packages. This table is built once
+	 * parsing is complete.
+	 */
+	private ResPackage[] packagesById = new ResPackage[0];
+	
 	public class ResPackage {
 		private int packageId;
 		private String packageName;
 		private List<ResType> types = new ArrayList<ResType>();
 		
+		/**
+		 * Lookup table mapping type IDs to the types in this package
+		 */
+		private ResType[] typesById = new ResType[0];
+		
 		public int getPackageId() {
 			return this.packageId;
 		}
@@ -244,6 +411,35 @@ public class ARSCFileParser extends AbstractResourceParser {
 			return this.types;
 		}
 		
+		/**
+		 * Gets the type with the given ID in this package
+		 * @param typeId The ID of the type to get
+		 * @return The type with the given ID if it exists, otherwise null
+		 */
+		public ResType getType(int typeId) {
+			if (typeId < 0 || typeId >= this.typesById.length)
+				return null;
+			return this.typesById[typeId];
+		}
+		
+		/**
+		 * Builds the lookup tables for finding types and resources in this
+		 * package by ID
+		 */
+		private void buildResourceIndex() {
+			int maxTypeId = 0;
+			for (ResType resType : this.types)
+				maxTypeId = Math.max(maxTypeId, resType.id);
+			
+			ResType[] types = new ResType[maxTypeId + 1];
+			for (ResType resType : this.types) {
+				if (resType.id >= 0 && types[resType.id] == null)
+					types[resType.id] = resType;
+				resType.buildResourceIndex();
+			}
+			this.typesById = types;
+		}
+		
 	}
 	
 	/**
@@ -254,6 +450,31 @@ public class ARSCFileParser extends AbstractResourceParser {
 		private int id;
 		private String typeName;
 		private List<ResConfig> configurations = new ArrayList<ResConfig>();
+		
+		/**
+		 * Index mapping resource names to the IDs that have been assigned to
+		 * them. This is kept up to date while parsing so that we do not need
+		 * to scan all configurations when assigning IDs.
+		 */
+		private Map<String, Integer> resourceIdsByName = new HashMap<String, Integer>();
+		/**
+		 * Index mapping entry keys (indices into the package's key string
+		 * pool) to the IDs that have been assigned to them
+		 */
+		private Map<Integer, Integer> resourceIdsByKey = new HashMap<Integer, Integer>();
+		
+		/**
+		 * Lookup table mapping entry indices to the configuration containing
+		 * the first resource with the respective ID. This table is only built
+		 * if all resources in this type share the same package and type ID,
+		 * otherwise it is null.
+		 */
+		private int[] configsByEntry = null;
+		/**
+		 * Lookup table mapping entry indices to the position of the first
+		 * resource with the respective ID inside its configuration
+		 */
+		private int[] positionsByEntry = null;
 
 		public String getTypeName() {
 			return this.typeName;
@@ -272,9 +493,11 @@ public class ARSCFileParser extends AbstractResourceParser {
 		public Collection<AbstractResource> getAllResources() {
 			Map<String, AbstractResource> resources = new HashMap<String, AbstractResource>();
 			for (ResConfig rc : this.configurations)
-				for (AbstractResource res : rc.getResources())
-					if (!resources.containsKey(res.resourceName))
-							resources.put(res.resourceName, res);
+				for (int i = 0; i < rc.resourceCount; i++) {
+					String resName = rc.getResourceName(i);
+					if (!resources.containsKey(resName))
+							resources.put(resName, rc.getResource(i));
+				}
 			return resources.values();
 		}
 		
@@ -286,9 +509,9 @@ public class ARSCFileParser extends AbstractResourceParser {
 		 */
 		public AbstractResource getFirstResource(String resourceName) {
 			for (ResConfig rc : this.configurations)
-				for (AbstractResource res : rc.getResources())
-					if (res.resourceName.equals(resourceName))
-						return res;
+				for (int i = 0; i < rc.resourceCount; i++)
+					if (rc.getResourceName(i).equals(resourceName))
+						return rc.getResource(i);
 			return null;
 		}
 
@@ -299,13 +522,101 @@ public class ARSCFileParser extends AbstractResourceParser {
 		 * null
 		 */
 		public AbstractResource getFirstResource(int resourceID) {
+			if (this.configsByEntry != null) {
+				int entryIdx = resourceID & 0xFFFF;
+				if (entryIdx >= this.configsByEntry.length
+						|| this.configsByEntry[entryIdx] < 0)
+					return null;
+				ResConfig rc = this.configurations.get(this.configsByEntry[entryIdx]);
+				int pos = this.positionsByEntry[entryIdx];
+				return rc.resourceIds[pos] == resourceID ? rc.getResource(pos) : null;
+			}
+			
 			for (ResConfig rc : this.configurations)
-				for (AbstractResource res : rc.getResources())
-					if (res.resourceID == resourceID)
-						return res;
+				for (int i = 0; i < rc.resourceCount; i++)
+					if (rc.resourceIds[i] == resourceID)
+						return rc.getResource(i);
 			return null;
 		}
 		
+		/**
+		 * Gets the ID that has been assigned to the resource with the given
+		 * key and name in this type
+		 * @param key The index of the resource name in the package's key
+		 * string pool
+		 * @param resourceName The name of the resource
+		 * @return The ID of the first resource with the given key or name if
+		 * one exists, otherwise null
+		 */
+		private Integer getResourceId(int key, String resourceName) {
+			Integer resId = this.resourceIdsByKey.get(key);
+			if (resId == null) {
+				resId = this.resourceIdsByName.get(resourceName);
+				if (resId != null)
+					this.resourceIdsByKey.put(key, resId);
+			}
+			return resId;
+		}
+		
+		/**
+		 * Records the ID of a resource in this type. If there already is an
+		 * ID for the given key or name, the existing one is kept.
+		 * @param key The index of the resource name in the package's key
+		 * string pool
+		 * @param resourceName The name of the resource
+		 * @param resourceID The ID of the resource
+		 */
+		private void addResourceId(int key, String resourceName, int resourceID) {
+			if (!this.resourceIdsByName.containsKey(resourceName))
+				this.resourceIdsByName.put(resourceName, resourceID);
+			if (!this.resourceIdsByKey.containsKey(key))
+				this.resourceIdsByKey.put(key, this.resourceIdsByName.get(resourceName));
+		}
+		
+		/**
+		 * Builds the lookup table for finding resources by ID. If the
+		 * resources in this type do not share a common package and type ID,
+		 * no table is built and lookups fall back to scanning the
+		 * configurations.
+		 */
+		private void buildResourceIndex() {
+			this.configsByEntry = null;
+			this.positionsByEntry = null;
+			
+			int maxEntry = -1;
+			int typePrefix = 0;
+			boolean first = true;
+			for (ResConfig rc : this.configurations)
+				for (int i = 0; i < rc.resourceCount; i++) {
+					int resId = rc.resourceIds[i];
+					if (first) {
+						typePrefix = resId & 0xFFFF0000;
+						first = false;
+					}
+					else if ((resId & 0xFFFF0000) != typePrefix)
+						return;
+					maxEntry = Math.max(maxEntry, resId & 0xFFFF);
+				}
+			
+			// Keep the first resource for every ID, just like a linear scan
+			// over the configurations would
+			int[] configs = new int[maxEntry + 1];
+			int[] positions = new int[maxEntry + 1];
+			Arrays.fill(configs, -1);
+			for (int c = 0; c < this.configurations.size(); c++) {
+				ResConfig rc = this.configurations.get(c);
+				for (int i = 0; i < rc.resourceCount; i++) {
+					int entryIdx = rc.resourceIds[i] & 0xFFFF;
+					if (configs[entryIdx] < 0) {
+						configs[entryIdx] = c;
+						positions[entryIdx] = i;
+					}
+				}
+			}
+			this.configsByEntry = configs;
+			this.positionsByEntry = positions;
+		}
+		
 		@Override
 		public String toString() {
 			return this.typeName;
@@ -317,17 +628,199 @@ public class ARSCFileParser extends AbstractResourceParser {
 	 * with a configuration (which may be the default one).
 	 */
 	public class ResConfig {
-		private List<AbstractResource> resources = new ArrayList<AbstractResource>();
+		/**
+		 * The key strings of the package to which this configuration belongs
+		 */
+		private final StringPool keyStrings;
+		
+		/*
+		 * The resources are stored in parallel arrays. Resource objects are
+		 * only created when they are requested.
+		 */
+		private int resourceCount = 0;
+		private int[] resourceIds;
+		private int[] resourceKeys;
+		private int[] valueTypes;
+		private int[] valueData;
+		
+		/*
+		 * The entries of all complex resources in this configuration. The
+		 * entries of the i-th complex resource are stored from index
+		 * bagStarts[i] (inclusive) to bagStarts[i + 1] (exclusive).
+		 */
+		private int bagCount = 0;
+		private int[] bagStarts = new int[1];
+		private int bagEntryCount = 0;
+		private int[] bagNames = new int[0];
+		private int[] bagTypes = new int[0];
+		private int[] bagData = new int[0];
+		
+		/*
+		 * The resource objects that have already been requested, so that the
+		 * same object is returned for every request of the same resource
+		 */
+		private AbstractResource[] resourceObjects = null;
+		private List<AbstractResource> resourceList = null;
+		
+		private ResConfig(StringPool keyStrings, int capacity) {
+			this.keyStrings = keyStrings;
+			this.resourceIds = new int[capacity];
+			this.resourceKeys = new int[capacity];
+			this.valueTypes = new int[capacity];
+			this.valueData = new int[capacity];
+		}
 
-		public List<AbstractResource> getResources() {
-			return this.resources;
+		/**
+		 * Gets the resources in this configuration. The resource objects are
+		 * created on demand when accessing the list. Every call returns the
+		 * same list, and the list always returns the same object for the
+		 * same resource.
+		 * @return A read-only list of the resources in this configuration
+		 */
+		public synchronized List<AbstractResource> getResources() {
+			if (this.resourceList != null)
+				return this.resourceList;
+			this.resourceList = new AbstractList<AbstractResource>() {
+
+				@Override
+				public AbstractResource get(int index) {
+					if (index < 0 || index >= resourceCount)
+						throw new IndexOutOfBoundsException("Invalid resource index: " + index);
+					return getResource(index);
+				}
+
+				@Override
+				public int size() {
+					return resourceCount;
+				}
+				
+			};
+			return this.resourceList;
+		}
+		
+		/**
+		 * Gets the name of the resource at the given position in this
+		 * configuration
+		 * @param idx The position of the resource
+		 * @return The name of the resource at the given position
+		 */
+		private String getResourceName(int idx) {
+			String resName = this.keyStrings.get(this.resourceKeys[idx]);
+			return resName == null ? "<INVALID RESOURCE>" : resName;
+		}
+		
+		/**
+		 * Gets the object for the resource at the given position in this
+		 * configuration. The object is created on the first request.
+		 * @param idx The position of the resource
+		 * @return The resource object
+		 */
+		private synchronized AbstractResource getResource(int idx) {
+			// Resources may have been added since the array was created
+			if (this.resourceObjects == null)
+				this.resourceObjects = new AbstractResource[this.resourceCount];
+			else if (this.resourceObjects.length < this.resourceCount)
+				this.resourceObjects = Arrays.copyOf(this.resourceObjects, this.resourceCount);
+			
+			if (this.resourceObjects[idx] != null)
+				return this.resourceObjects[idx];
+			
+			AbstractResource res;
+			if (this.valueTypes[idx] == TYPE_COMPLEX)
+				res = new ComplexResource(this, this.valueData[idx]);
+			else
+				res = createResource(this.valueTypes[idx], this.valueData[idx]);
+			res.resourceName = getResourceName(idx);
+			res.resourceID = this.resourceIds[idx];
+			this.resourceObjects[idx] = res;
+			return res;
+		}
+		
+		/**
+		 * Creates the object for the value of the given entry of a complex
+		 * resource
+		 * @param idx The index of the entry
+		 * @return The value object or null if the value has an unsupported
+		 * type
+		 */
+		private AbstractResource getBagValue(int idx) {
+			return createResource(this.bagTypes[idx], this.bagData[idx]);
+		}
+		
+		/**
+		 * Adds a new resource to this configuration
+		 * @param resourceID The ID of the new resource
+		 * @param key The index of the resource name in the package's key
+		 * string pool
+		 * @param dataType The type of the resource value
+		 * @param data The raw resource value
+		 */
+		private void addResource(int resourceID, int key, int dataType, int data) {
+			if (this.resourceCount == this.resourceIds.length) {
+				int newSize = Math.max(8, this.resourceCount * 2);
+				this.resourceIds = Arrays.copyOf(this.resourceIds, newSize);
+				this.resourceKeys = Arrays.copyOf(this.resourceKeys, newSize);
+				this.valueTypes = Arrays.copyOf(this.valueTypes, newSize);
+				this.valueData = Arrays.copyOf(this.valueData, newSize);
+			}
+			this.resourceIds[this.resourceCount] = resourceID;
+			this.resourceKeys[this.resourceCount] = key;
+			this.valueTypes[this.resourceCount] = dataType;
+			this.valueData[this.resourceCount] = data;
+			this.resourceCount++;
+		}
+		
+		/**
+		 * Adds an entry to the complex resource that is currently being read.
+		 * Call finishBag() once all entries have been added.
+		 * @param name The name of the entry
+		 * @param dataType The type of the entry's value
+		 * @param data The raw value of the entry
+		 */
+		private void addBagEntry(int name, int dataType, int data) {
+			if (this.bagEntryCount == this.bagNames.length) {
+				int newSize = Math.max(8, this.bagEntryCount * 2);
+				this.bagNames = Arrays.copyOf(this.bagNames, newSize);
+				this.bagTypes = Arrays.copyOf(this.bagTypes, newSize);
+				this.bagData = Arrays.copyOf(this.bagData, newSize);
+			}
+			this.bagNames[this.bagEntryCount] = name;
+			this.bagTypes[this.bagEntryCount] = dataType;
+			this.bagData[this.bagEntryCount] = data;
+			this.bagEntryCount++;
+		}
+		
+		/**
+		 * Completes the complex resource that is currently being read
+		 * @return The index of the complex resource in this configuration
+		 */
+		private int finishBag() {
+			if (this.bagCount + 1 == this.bagStarts.length)
+				this.bagStarts = Arrays.copyOf(this.bagStarts, this.bagStarts.length * 2);
+			this.bagStarts[++this.bagCount] = this.bagEntryCount;
+			return this.bagCount - 1;
+		}
+		
+		/**
+		 * Releases the memory that has been reserved for resources that were
+		 * never added
+		 */
+		private void trimToSize() {
+			this.resourceIds = Arrays.copyOf(this.resourceIds, this.resourceCount);
+			this.resourceKeys = Arrays.copyOf(this.resourceKeys, this.resourceCount);
+			this.valueTypes = Arrays.copyOf(this.valueTypes, this.resourceCount);
+			this.valueData = Arrays.copyOf(this.valueData, this.resourceCount);
+			this.bagStarts = Arrays.copyOf(this.bagStarts, this.bagCount + 1);
+			this.bagNames = Arrays.copyOf(this.bagNames, this.bagEntryCount);
+			this.bagTypes = Arrays.copyOf(this.bagTypes, this.bagEntryCount);
+			this.bagData = Arrays.copyOf(this.bagData, this.bagEntryCount);
 		}
 	}
 		
 	/**
 	 * Abstract base class for all Android resources.
 	 */
-	public abstract class AbstractResource {
+	public static abstract class AbstractResource {
 		private String resourceName;
 		private int resourceID;
 		
@@ -343,13 +836,13 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource that does not contain any data
 	 */
-	public class NullResource extends AbstractResource {	
+	public static class NullResource extends AbstractResource {	
 	}
 
 	/**
 	 * Android resource containing a reference to another resource.
 	 */
-	public class ReferenceResource extends AbstractResource {
+	public static class ReferenceResource extends AbstractResource {
 		private int referenceID;
 		
 		public ReferenceResource(int id) {
@@ -364,7 +857,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing an attribute resource identifier.
 	 */
-	public class AttributeResource extends AbstractResource {
+	public static class AttributeResource extends AbstractResource {
 		private int attributeID;
 		
 		public AttributeResource(int id) {
@@ -379,27 +872,42 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing string data.
 	 */
-	public class StringResource extends AbstractResource {
+	public static class StringResource extends AbstractResource {
 		private String value;
+		private StringPool stringPool;
+		private int stringIdx;
 		
 		public StringResource(String value) {
 			this.value = value;
 		}
 		
+		/**
+		 * Creates a new string resource whose value is only read from the
+		 * given string pool when it is first requested
+		 * @param stringPool The string pool containing the value
+		 * @param stringIdx The index of the value in the string pool
+		 */
+		private StringResource(StringPool stringPool, int stringIdx) {
+			this.stringPool = stringPool;
+			this.stringIdx = stringIdx;
+		}
+		
 		public String getValue() {
+			if (this.value == null && this.stringPool != null)
+				this.value = this.stringPool.get(this.stringIdx);
 			return this.value;
 		}
 		
 		@Override
 		public String toString() {
-			return this.value;
+			return getValue();
 		}
 	}
 
 	/**
 	 * Android resource containing integer data.
 	 */
-	public class IntegerResource extends AbstractResource {
+	public static class IntegerResource extends AbstractResource {
 		private int value;
 		
 		public IntegerResource(int value) {
@@ -414,7 +922,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing a single-precision floating point number
 	 */
-	public class FloatResource extends AbstractResource {
+	public static class FloatResource extends AbstractResource {
 		private float value;
 		
 		public FloatResource(float value) {
@@ -429,7 +937,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing boolean data.
 	 */
-	public class BooleanResource extends AbstractResource {
+	public static class BooleanResource extends AbstractResource {
 		private boolean value;
 		
 		public BooleanResource(int value) {
@@ -444,7 +952,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing color data.
 	 */
-	public class ColorResource extends AbstractResource {
+	public static class ColorResource extends AbstractResource {
 		private int a;
 		private int r;
 		private int g;
@@ -489,7 +997,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing dimension data like "11pt".
 	 */
-	public class DimensionResource extends AbstractResource {
+	public static class DimensionResource extends AbstractResource {
 		private int value;
 		private Dimension unit;
 		
@@ -536,8 +1044,10 @@ public class ARSCFileParser extends AbstractResourceParser {
 	/**
 	 * Android resource containing complex map data.
 	 */
-	public class ComplexResource extends AbstractResource {
+	public static class ComplexResource extends AbstractResource {
 		private Map<String, AbstractResource> value;
+		private ResConfig config;
+		private int bagIdx;
 		
 		public ComplexResource() {
 			this.value = new HashMap<String, AbstractResource>();
@@ -547,7 +1057,45 @@ public class ARSCFileParser extends AbstractResourceParser {
 			this.value = value;
 		}
 		
+		/**
+		 * Creates a new complex resource whose entries are read from the
+		 * given configuration when they are requested
+		 * @param config The configuration containing the entries
+		 * @param bagIdx The index of the complex resource in the
+		 * configuration
+		 */
+		private ComplexResource(ResConfig config, int bagIdx) {
+			this.config = config;
+			this.bagIdx = bagIdx;
+		}
+		
+		/**
+		 * Gets the value of the entry with the given name
+		 * @param name The name of the entry, i.e., the resource ID of the
+		 * attribute
+		 * @return The value of the entry with the given name or null if there
+		 * is no such entry
+		 */
+		public AbstractResource getValue(int name) {
+			if (this.config == null)
+				return this.value.get(name + "");
+			
+			// Later entries override earlier ones with the same name
+			for (int i = this.config.bagStarts[this.bagIdx + 1] - 1;
+					i >= this.config.bagStarts[this.bagIdx]; i--)
+				if (this.config.bagNames[i] == name)
+					return this.config.getBagValue(i);
+			return null;
+		}
+		
 		public Map<String, AbstractResource> getValue() {
+			if (this.value == null) {
+				Map<String, AbstractResource> entries = new HashMap<String, AbstractResource>();
+				for (int i = this.config.bagStarts[this.bagIdx];
+						i < this.config.bagStarts[this.bagIdx + 1]; i++)
+					entries.put(this.config.bagNames[i] + "", this.config.getBagValue(i));
+				this.value = entries;
+			}
 			return this.value;
 		}
 	}
@@ -887,66 +1435,152 @@ public class ARSCFileParser extends AbstractResourceParser {
 	}
 	
 	public ARSCFileParser() {
+		this(null);
+	}
+	
+	/**
+	 * Creates a new resource file parser that only loads resources of the
+	 * given types. Resources of all other types are skipped without
+	 * decoding them.
+	 * @param typeFilter The names of the resource types to load, e.g.
+	 * "layout" or "string". Pass null to load all resource types.
+	 */
+	public ARSCFileParser(Set<String> typeFilter) {
+		this.typeFilter = typeFilter;
 	}
 
 	public void parse(String apkFile) throws IOException {
-		this.handleAndroidResourceFiles(apkFile, null, new IResourceHandler() {
-			
-			@Override
-			public void handleResourceFile(String fileName, Set<String> fileNameFilter,
-					InputStream stream) {
-				try {
-					if (fileName.equals("resources.arsc"))
-						parse(stream);
-				}
-				catch (IOException ex) {
-					System.err.println("Could not read resource file: " + ex.getMessage());
-					ex.printStackTrace();
-				}
-			}
-			
-		});
+		// If the app has already been extracted, we can directly map the
+		// resource file into memory
+		File apkF = new File(apkFile);
+		if (apkF.isDirectory()) {
+			parseResourceFile(new File(apkF, "resources.arsc"));
+			return;
+		}
+		
+		ApkArchive archive = new ApkArchive(apkFile);
+		try {
+			parse(archive);
+		}
+		finally {
+			archive.close();
+		}
 	}
 	
+	/**
+	 * Parses the resource table of the given apk file. The resources.arsc
+	 * entry is obtained from the shared archive, so it is inflated only once
+	 * even if other parsers access it as well.
+	 * @param archive The apk file from which to read the resource table
+	 * @throws IOException Thrown if the resource table cannot be read
+	 */
+	public void parse(ApkArchive archive) throws IOException {
+		ByteBuffer table = archive.getBuffer("resources.arsc");
+		if (table != null)
+			parse(table);
+	}
+	
+	/**
+	 * Parses the given resources.arsc file that has already been extracted
+	 * from the apk file. The file is mapped into memory instead of being
+	 * read.
+	 * @param resourceFile The resources.arsc file to parse
+	 * @throws IOException Thrown if the file cannot be read
+	 */
+	public void parseResourceFile(File resourceFile) throws IOException {
+		FileInputStream fis = new FileInputStream(resourceFile);
+		try {
+			FileChannel channel = fis.getChannel();
+			parse(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			fis.close();
+		}
+	}
+	
+	/**
+	 * Parses the resource table from the given stream. The data is read into
+	 * a single direct buffer which is then parsed in place.
+	 * @param stream The stream from which to read the resource table
+	 * @throws IOException Thrown if the stream cannot be read
+	 */
 	public void parse(InputStream stream) throws IOException {
-		readResourceHeader(stream);
+		// The table header tells us how much data we need to read
+		ByteBuffer header = ByteBuffer.allocate(RES_TABLE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		ReadableByteChannel channel = Channels.newChannel(stream);
+		if (!readFully(channel, header)) {
+			System.err.println("Could not read header from resource file");
+			return;
+		}
+		
+		int tableSize = header.getInt(4);
+		ByteBuffer table = ByteBuffer.allocateDirect(Math.max(tableSize,
+				RES_TABLE_HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+		header.flip();
+		table.put(header);
+		if (!readFully(channel, table)) {
+			System.err.println("Could not read block from resource file");
+			return;
+		}
+		table.flip();
+		parse(table);
+	}
+	
+	/**
+	 * Reads data from the given channel until the given buffer is full or
+	 * the end of the channel is reached
+	 * @param channel The channel from which to read
+	 * @param buffer The buffer to fill
+	 * @return True if the buffer has been filled completely, false if the
+	 * end of the channel was reached before
+	 * @throws IOException Thrown if the channel cannot be read
+	 */
+	private boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			if (channel.read(buffer) < 0)
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Parses the resource table contained in the given buffer. All data is
+	 * read directly from the buffer without copying it first. The table
+	 * must start at the buffer's current position.
+	 * @param table The buffer containing the complete resource table
+	 * @throws IOException Thrown if an error occurs during read
+	 */
+	public void parse(ByteBuffer table) throws IOException {
+		readResourceHeader(table.slice().order(ByteOrder.LITTLE_ENDIAN));
+		buildResourceIndex();
 	}
 
-	private void readResourceHeader(InputStream stream) throws IOException {
-		final int BLOCK_SIZE = 2048;
-		
+	private void readResourceHeader(ByteBuffer table) throws IOException {
 		ResTable_Header resourceHeader = new ResTable_Header();
-		readChunkHeader(stream, resourceHeader.header);
-		resourceHeader.packageCount = readUInt32(stream);
+		readChunkHeader(resourceHeader.header, table, 0);
+		resourceHeader.packageCount = readUInt32(table, 8);
 		if (DEBUG)
 			System.out.println("Package Groups (" + resourceHeader.packageCount + ")");
 		
 		// Do we have any packages to read?
-		int remainingSize = resourceHeader.header.size - resourceHeader.header.headerSize;
+		int remainingSize = Math.min(resourceHeader.header.size, table.limit())
+				- resourceHeader.header.headerSize;
 		if (remainingSize <= 0)
 			return;
 		
-		// Load the remaining data
-		byte[] remainingData = new byte[remainingSize];
-		int totalBytesRead = 0;
-		while (totalBytesRead < remainingSize) {
-			byte[] block = new byte[Math.min(BLOCK_SIZE, remainingSize - totalBytesRead)];
-			int bytesRead = stream.read(block);
-			if (bytesRead < 0) {
-				System.err.println("Could not read block from resource file");
-				return;
-			}
-			System.arraycopy(block, 0, remainingData, totalBytesRead, bytesRead);
-			totalBytesRead += bytesRead;
-		}
+		// Get a view on the remaining data. All offsets inside the table
+		// are relative to the end of the table header.
+		table.position(resourceHeader.header.headerSize);
+		table.limit(resourceHeader.header.headerSize + remainingSize);
+		ByteBuffer remainingData = table.slice().order(ByteOrder.LITTLE_ENDIAN);
+		
 		int offset = 0;
 		int beforeBlock = 0;
 		
 		// Read the next chunk
 		int packageCtr = 0;
-		Map<Integer, String> keyStrings = new HashMap<Integer, String>();
-		Map<Integer, String> typeStrings = new HashMap<Integer, String>();
-		while (offset < remainingData.length - 1) {
+		StringPool keyStrings = new StringPool();
+		StringPool typeStrings = new StringPool();
+		while (offset < remainingData.limit() - 1) {
 			beforeBlock = offset;
 			ResChunk_Header nextChunkHeader = new ResChunk_Header();
 			offset = readChunkHeader(nextChunkHeader, remainingData, offset);
@@ -957,8 +1591,8 @@ public class ARSCFileParser extends AbstractResourceParser {
 				offset = parseStringPoolHeader(stringPoolHeader, remainingData, offset);
 				
 				// Read the string data
-				offset = readStringTable(remainingData, offset, beforeBlock,
-						stringPoolHeader, this.stringTable);
+				this.stringTable = readStringTable(remainingData, offset, beforeBlock,
+						stringPoolHeader);
 				assert this.stringTable.size() == stringPoolHeader.stringCount;
 			}
 			else if (nextChunkHeader.type == RES_TABLE_PACKAGE_TYPE) {
@@ -996,8 +1630,8 @@ public class ARSCFileParser extends AbstractResourceParser {
 				
 				// Attention: String offset starts at the beginning of the StringPool
 				// block, not the at the beginning of the Package block referring to it.
-				readStringTable(remainingData, typeStringsOffset, beforeStringBlock,
-						typePool, typeStrings);
+				typeStrings = readStringTable(remainingData, typeStringsOffset,
+						beforeStringBlock, typePool);
 				
 				// Find the key strings
 				int keyStringsOffset = beforeBlock + packageTable.keyStrings;
@@ -1013,8 +1647,8 @@ public class ARSCFileParser extends AbstractResourceParser {
 				
 				// Attention: String offset starts at the beginning of the StringPool
 				// block, not the at the beginning of the Package block referring to it.
-				readStringTable(remainingData, keyStringsOffset, beforeStringBlock,
-						keyPool, keyStrings);
+				keyStrings = readStringTable(remainingData, keyStringsOffset,
+						beforeStringBlock, keyPool);
 
 				// Jump to the end of the string block
 				offset = beforeStringBlock + keyPoolHeader.size;
@@ -1033,10 +1667,13 @@ public class ARSCFileParser extends AbstractResourceParser {
 						assert offset == beforeInnerBlock + typeSpecTable.header.headerSize;
 						
 						// Create the data object
-						ResType tp = new ResType();
-						tp.id = typeSpecTable.id;
-						tp.typeName = typeStrings.get(typeSpecTable.id - 1);
-						resPackage.types.add(tp);
+						String typeName = typeStrings.get(typeSpecTable.id - 1);
+						if (isTypeWanted(typeName)) {
+							ResType tp = new ResType();
+							tp.id = typeSpecTable.id;
+							tp.typeName = typeName;
+							resPackage.types.add(tp);
+						}
 
 						// Normally, we also have a set of configurations following, but
 						// we don't implement that at the moment
@@ -1045,6 +1682,13 @@ public class ARSCFileParser extends AbstractResourceParser {
 						// Type resource entries. The id field maps to the type
 						// for which we have a record. We create a mapping from
 						// type IDs to declare resources.
+						// If we are not interested in this type, we skip the
+						// whole block without decoding any entries.
+						if (!isTypeWanted(typeStrings.get(readUInt8(remainingData, offset) - 1))) {
+							offset = beforeInnerBlock + innerHeader.size;
+							continue;
+						}
+						
 						ResTable_Type typeTable = new ResTable_Type();
 						typeTable.header = innerHeader;
 						offset = readTypeTable(typeTable, remainingData, offset);
@@ -1059,10 +1703,16 @@ public class ARSCFileParser extends AbstractResourceParser {
 							}
 						if (resType == null)
 							throw new RuntimeException("Reference to undeclared type found");
-						ResConfig config = new ResConfig();
+						ResConfig config = new ResConfig(keyStrings, typeTable.entryCount);
 						resType.configurations.add(config);
 						
-						// Read the table entries
+						// Read the table entries. The value structures only hold
+						// data until it has been converted into the resource
+						// object, so we can reuse them for all entries.
+						ResTable_Entry simpleEntry = new ResTable_Entry();
+						ResTable_Map_Entry mapEntry = new ResTable_Map_Entry();
+						ResTable_Map map = new ResTable_Map();
+						Res_Value val = new Res_Value();
 						int resourceIdx = 0;
 						for (int i = 0; i < typeTable.entryCount; i++) {
 							int entryOffset = readUInt32(remainingData, offset);
@@ -1070,52 +1720,50 @@ public class ARSCFileParser extends AbstractResourceParser {
 							if (entryOffset == 0xFFFFFFFF)	// NoEntry
 								continue;
 							entryOffset += beforeInnerBlock + typeTable.entriesStart;
-							ResTable_Entry entry = readEntryTable(remainingData, entryOffset);
+							ResTable_Entry entry = readEntryTable(remainingData, entryOffset,
+									simpleEntry, mapEntry);
 							entryOffset += entry.size;
 							
-							AbstractResource res;
+							int dataType;
+							int data;
 							
 							// If this is a simple entry, the data structure is
 							// followed by RES_VALUE
 							if (entry.flagsComplex) {
-								ComplexResource cmpRes = new ComplexResource();
-								res = cmpRes;
-								
 								for (int j = 0; j < ((ResTable_Map_Entry) entry).count; j++) {
-									ResTable_Map map = new ResTable_Map();
 									entryOffset = readComplexValue(map, remainingData, entryOffset);
-									cmpRes.value.put(map.name + "", parseValue(map.value));
+									config.addBagEntry(map.name, map.value.dataType, map.value.data);
 								}
+								dataType = TYPE_COMPLEX;
+								data = config.finishBag();
 							}
 							else {
-								Res_Value val = new Res_Value();
 								entryOffset = readValue(val, remainingData, entryOffset);
-								res = parseValue(val);
-								if (res == null) {
+								if (!isSupportedType(val.dataType)) {
 									System.err.println("Could not parse resource " + keyStrings.get(entry.key)
 											+ " of type " + Integer.toHexString(val.dataType) + ", skipping entry");
 									continue;
 								}
+								dataType = val.dataType;
+								data = val.data;
 							}
 							
 							// Create the data object. For finding the correct ID, we
 							// must check whether the entry is really new - if so, it
 							// gets a new ID, otherwise, we reuse the old one
-							if (keyStrings.containsKey(entry.key))
-								res.resourceName = keyStrings.get(entry.key);
-							else
-								res.resourceName = "<INVALID RESOURCE>";
-							for (AbstractResource r : resType.getAllResources())
-								if (r.getResourceName().equals(res.resourceName)) {
-									res.resourceID = r.resourceID;
-									break;
-								}
-							if (res.resourceID <= 0)
-								res.resourceID = (packageTable.id << 24)
+							String resourceName = keyStrings.get(entry.key);
+							if (resourceName == null)
+								resourceName = "<INVALID RESOURCE>";
+							Integer knownId = resType.getResourceId(entry.key, resourceName);
+							int resourceID = knownId == null ? 0 : knownId;
+							if (resourceID <= 0)
+								resourceID = (packageTable.id << 24)
 										+ (typeTable.id << 16) + resourceIdx;
-							config.resources.add(res);
+							config.addResource(resourceID, entry.key, dataType, data);
+							resType.addResourceId(entry.key, resourceName, resourceID);
 							resourceIdx++;
 						}
+						config.trimToSize();
 					}
 					offset = beforeInnerBlock + innerHeader.size;
 				}
@@ -1125,10 +1773,10 @@ public class ARSCFileParser extends AbstractResourceParser {
 					if (DEBUG) {
 						System.out.println("\t\tType " + resType.typeName + " " + (resType.id - 1) + ", configCount="
 							+ resType.configurations.size() + ", entryCount="
-							+ (resType.configurations.size() > 0 ? resType.configurations.get(0).resources.size() : 0));
+							+ (resType.configurations.size() > 0 ? resType.configurations.get(0).resourceCount : 0));
 						for (ResConfig resConfig : resType.configurations) {
 							System.out.println("\t\t\tconfig");
-							for (AbstractResource res : resConfig.resources)
+							for (AbstractResource res : resConfig.getResources())
 								System.out.println("\t\t\t\tresource " + Integer.toHexString(res.resourceID)
 										+ " " + res.resourceName);
 						}
@@ -1139,10 +1787,19 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 			// Skip the block
 			offset = beforeBlock + nextChunkHeader.size;
-			remainingSize -= nextChunkHeader.size;
 		}
 	}
 
+	/**
+	 * Checks whether resources of the given type shall be loaded
+	 * @param typeName The name of the resource type to check
+	 * @return True if resources of the given type shall be loaded, otherwise
+	 * false
+	 */
+	private boolean isTypeWanted(String typeName) {
+		return this.typeFilter == null || this.typeFilter.contains(typeName);
+	}
+
 	/**
 	 * Checks whether the given complex map entry is one of the well-known
 	 * attributes.
@@ -1163,54 +1820,89 @@ public class ARSCFileParser extends AbstractResourceParser {
 				|| map.name == ATTR_MANY;
 	}
 
-	private AbstractResource parseValue(Res_Value val) {
+	/**
+	 * Checks whether resource values of the given type can be represented
+	 * as resource objects
+	 * @param dataType The type of the resource value
+	 * @return True if values of the given type are supported, otherwise
+	 * false
+	 */
+	private boolean isSupportedType(int dataType) {
+		switch (dataType) {
+			case TYPE_NULL:
+			case TYPE_REFERENCE:
+			case TYPE_ATTRIBUTE:
+			case TYPE_STRING:
+			case TYPE_INT_DEC:
+			case TYPE_INT_HEX:
+			case TYPE_INT_BOOLEAN:
+			case TYPE_INT_COLOR_ARGB8:
+			case TYPE_INT_COLOR_RGB8:
+			case TYPE_INT_COLOR_ARGB4:
+			case TYPE_INT_COLOR_RGB4:
+			case TYPE_DIMENSION:
+			case TYPE_FLOAT:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Creates the resource object for the given raw resource value
+	 * @param dataType The type of the resource value
+	 * @param data The raw resource value
+	 * @return The resource object or null if the value has an unsupported
+	 * type
+	 */
+	private AbstractResource createResource(int dataType, int data) {
 		AbstractResource res;
-		switch (val.dataType) {
+		switch (dataType) {
 			case TYPE_NULL:
 				res = new NullResource();
 				break;
 			case TYPE_REFERENCE:
-				res = new ReferenceResource(val.data);
+				res = new ReferenceResource(data);
 				break;
 			case TYPE_ATTRIBUTE:
-				res = new AttributeResource(val.data);
+				res = new AttributeResource(data);
 				break;
 			case TYPE_STRING :
-				res = new StringResource(stringTable.get(val.data));
+				res = new StringResource(stringTable, data);
 				break;
 			case TYPE_INT_DEC:
 			case TYPE_INT_HEX:
-				res = new IntegerResource(val.data);
+				res = new IntegerResource(data);
 				break;
 			case TYPE_INT_BOOLEAN:
-				res = new BooleanResource(val.data);
+				res = new BooleanResource(data);
 				break;
 			case TYPE_INT_COLOR_ARGB8:
-				res = new ColorResource(val.data & 0xFF000000 >> 3 * 8,
-						val.data & 0x00FF0000 >> 2 * 8, val.data & 0x0000FF00 >> 8,
-						val.data & 0x000000FF);
+				res = new ColorResource(data & 0xFF000000 >> 3 * 8,
+						data & 0x00FF0000 >> 2 * 8, data & 0x0000FF00 >> 8,
+						data & 0x000000FF);
 				break;
 			case TYPE_INT_COLOR_RGB8:
 				res = new ColorResource(0,
-						val.data & 0xFF0000 >> 2 * 8, val.data & 0x00FF00 >> 8,
-						val.data & 0x0000FF);
+						data & 0xFF0000 >> 2 * 8, data & 0x00FF00 >> 8,
+						data & 0x0000FF);
 				break;
 			case TYPE_INT_COLOR_ARGB4:
-				res = new ColorResource(val.data & 0xF000 >> 3 * 8,
-						val.data & 0x0F00 >> 2 * 8, val.data & 0x00F0 >> 8,
-						val.data & 0x000F);
+				res = new ColorResource(data & 0xF000 >> 3 * 8,
+						data & 0x0F00 >> 2 * 8, data & 0x00F0 >> 8,
+						data & 0x000F);
 				break;
 			case TYPE_INT_COLOR_RGB4:
 				res = new ColorResource(0,
-						val.data & 0xF00 >> 2 * 8, val.data & 0x0F0 >> 8,
-						val.data & 0x00F);
+						data & 0xF00 >> 2 * 8, data & 0x0F0 >> 8,
+						data & 0x00F);
 				break;
 			case TYPE_DIMENSION:
-				res = new DimensionResource(val.data & COMPLEX_UNIT_MASK,
-						val.data >> COMPLEX_UNIT_SHIFT);
+				res = new DimensionResource(data & COMPLEX_UNIT_MASK,
+						data >> COMPLEX_UNIT_SHIFT);
 				break;
 			case TYPE_FLOAT:
-				res = new FloatResource(Float.intBitsToFloat(val.data));
+				res = new FloatResource(Float.intBitsToFloat(data));
 				break;
 			default:
 				return null;
@@ -1220,7 +1912,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readComplexValue
 			(ResTable_Map map,
-			byte[] remainingData,
+			ByteBuffer remainingData,
 			int offset) throws IOException {
 		map.name = readUInt32(remainingData, offset);
 		offset += 4;
@@ -1230,14 +1922,18 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readValue
 			(Res_Value val,
-			byte[] remainingData,
+			ByteBuffer remainingData,
 			int offset) throws IOException {
 		int initialOffset = offset;
 		
 		val.size = readUInt16(remainingData, offset);
 		offset += 2;
-		if (val.size > 8)	// This should always be 8. Check to not fail on broken resources in apps
+		if (val.size > 8) {	// This should always be 8. Check to not fail on broken resources in apps
+			val.res0 = 0;
+			val.dataType = TYPE_NULL;
+			val.data = 0;
 			return 0;
+		}
 		
 		val.res0 = readUInt8(remainingData, offset);
 		if (val.res0 != 0)
@@ -1254,15 +1950,28 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private ResTable_Entry readEntryTable(byte[] data, int offset) throws IOException {
+	/**
+	 * Reads a resource table entry. The data is stored in one of the given
+	 * entry objects depending on the kind of entry found in the data.
+	 * @param data The buffer containing the structure
+	 * @param offset The offset from which to start reading
+	 * @param simpleEntry The object to fill if the data contains a simple
+	 * entry
+	 * @param mapEntry The object to fill if the data contains a complex map
+	 * entry
+	 * @return The entry object into which the data has been read
+	 * @throws IOException Thrown if an error occurs during read
+	 */
+	private ResTable_Entry readEntryTable(ByteBuffer data, int offset,
+			ResTable_Entry simpleEntry, ResTable_Map_Entry mapEntry) throws IOException {
 		// The exact type of entry depends on the size
 		int size = readUInt16(data, offset);
 		offset += 2;
 		ResTable_Entry entry;
 		if (size == 0x8)
-			entry = new ResTable_Entry();
+			entry = simpleEntry;
 		else if (size == 0x10)
-			entry = new ResTable_Map_Entry();
+			entry = mapEntry;
 		else
 			throw new RuntimeException("Unknown entry type");
 		entry.size = size;
@@ -1275,8 +1984,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 		entry.key = readUInt32(data, offset);
 		offset += 4;
 		
-		if (entry instanceof ResTable_Map_Entry) {
-			ResTable_Map_Entry mapEntry = (ResTable_Map_Entry) entry;
+		if (entry == mapEntry) {
 			mapEntry.parent = readUInt32(data, offset);
 			offset += 4;
 			mapEntry.count = readUInt32(data, offset);
@@ -1288,7 +1996,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readTypeTable
 			(ResTable_Type typeTable,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		typeTable.id = readUInt8(data, offset);
 		offset += 1;
@@ -1314,7 +2022,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readConfigTable
 			(ResTable_Config config,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		config.size = readUInt32(data, offset);
 		offset += 4;
@@ -1325,12 +2033,12 @@ public class ARSCFileParser extends AbstractResourceParser {
 		config.mnc = readUInt16(data, offset);
 		offset += 2;
 
-		config.language[0] = (char) data[offset];
-		config.language[1] = (char) data[offset + 1];
+		config.language[0] = (char) data.get(offset);
+		config.language[1] = (char) data.get(offset + 1);
 		offset += 2;
 		
-		config.country[0] = (char) data[offset];
-		config.country[1] = (char) data[offset + 1];
+		config.country[0] = (char) data.get(offset);
+		config.country[1] = (char) data.get(offset + 1);
 		offset += 2;
 		
 		config.orientation = readUInt8(data, offset);
@@ -1380,7 +2088,7 @@ public class ARSCFileParser extends AbstractResourceParser {
 
 	private int readTypeSpecTable
 			(ResTable_TypeSpec typeSpecTable,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		typeSpecTable.id = readUInt8(data, offset);
 		offset += 1;
@@ -1401,32 +2109,34 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private int readStringTable
-			(byte[] remainingData,
+	/**
+	 * Reads the offset table of a string pool. The strings themselves are
+	 * only decoded when they are accessed.
+	 * @param remainingData The buffer containing the string pool
+	 * @param offset The offset of the string offset table
+	 * @param blockStart The offset at which the string pool block starts
+	 * @param stringPoolHeader The header of the string pool
+	 * @return The string pool
+	 * @throws IOException Thrown if an error occurs during read
+	 */
+	private StringPool readStringTable
+			(ByteBuffer remainingData,
 			int offset,
 			int blockStart,
-			ResStringPool_Header stringPoolHeader,
-			Map<Integer, String> stringList) throws IOException {
-		// Read the strings
+			ResStringPool_Header stringPoolHeader) throws IOException {
+		// Offsets begin at block start
+		int[] offsets = new int[stringPoolHeader.stringCount];
 		for (int i = 0; i < stringPoolHeader.stringCount; i++) {
-			int stringIdx = readUInt32(remainingData, offset);
+			offsets[i] = readUInt32(remainingData, offset)
+					+ stringPoolHeader.stringsStart + blockStart;
 			offset += 4;
-			
-			// Offset begins at block start
-			stringIdx += stringPoolHeader.stringsStart + blockStart;
-			String str = "";
-			if (stringPoolHeader.flagsUTF8)
-				str = readStringUTF8(remainingData, stringIdx).trim();
-			else
-				str = readString(remainingData, stringIdx).trim();
-			stringList.put(i, str);
 		}
-		return offset;
+		return new StringPool(remainingData, offsets, stringPoolHeader.flagsUTF8);
 	}
 
 	private int parsePackageTable
 			(ResTable_Package packageTable,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		packageTable.id = readUInt32(data, offset);
 		offset += 4;
@@ -1455,29 +2165,32 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private String readString(byte[] remainingData, int stringIdx) throws IOException {
+	private String readString(ByteBuffer remainingData, int stringIdx) throws IOException {
 		int strLen = readUInt16(remainingData, stringIdx);
 		if (strLen == 0)
 			return "";
 		stringIdx += 2;
-		byte[] str = new byte[strLen * 2];
-		System.arraycopy(remainingData, stringIdx, str, 0, strLen * 2);
-		return new String(remainingData, stringIdx, strLen * 2, "UTF-16LE");
+		char[] str = new char[strLen];
+		for (int i = 0; i < strLen; i++)
+			str[i] = remainingData.getChar(stringIdx + i * 2);
+		return new String(str);
 	}
 
-	private String readStringUTF8(byte[] remainingData, int stringIdx) throws IOException {
+	private String readStringUTF8(ByteBuffer remainingData, int stringIdx) throws IOException {
 		// skip the length, will usually be 0x1A1A
 		// int strLen = readUInt16(remainingData, stringIdx);
 		// the length here is somehow weird
 		int strLen = readUInt8(remainingData, stringIdx + 1);
 		stringIdx += 2;
-		String str = new String(remainingData, stringIdx, strLen, "UTF-8");
-		return str;
+		byte[] str = new byte[strLen];
+		for (int i = 0; i < strLen; i++)
+			str[i] = remainingData.get(stringIdx + i);
+		return new String(str, "UTF-8");
 	}
 
 	private int parseStringPoolHeader
 			(ResStringPool_Header stringPoolHeader,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		stringPoolHeader.stringCount = readUInt32(data, offset);
 		stringPoolHeader.styleCount = readUInt32(data, offset + 4);
@@ -1492,31 +2205,16 @@ public class ARSCFileParser extends AbstractResourceParser {
 	}
 
 	/**
-	 * Reads a chunk header from the input stream and stores the data in the
+	 * Reads a chunk header from the given buffer and stores the data in the
 	 * given object.
-	 * @param stream The stream from which to read the chunk header
 	 * @param nextChunkHeader The data object in which to put the chunk header
-	 * @throws IOException Thrown if an error occurs during read
-	 */
-	private void readChunkHeader
-			(InputStream stream,
-			ResChunk_Header nextChunkHeader) throws IOException {
-		byte[] header = new byte[8];
-		stream.read(header);
-		readChunkHeader(nextChunkHeader, header, 0);
-	}
-
-	/**
-	 * Reads a chunk header from the input stream and stores the data in the
-	 * given object.
-	 * @param nextChunkHeader The data object in which to put the chunk header
-	 * @param data The data array containing the structure
+	 * @param data The buffer containing the structure
 	 * @param offset The offset from which to start reading
 	 * @throws IOException Thrown if an error occurs during read
 	 */
 	private int readChunkHeader
 			(ResChunk_Header nextChunkHeader,
-			byte[] data,
+			ByteBuffer data,
 			int offset) throws IOException {
 		nextChunkHeader.type = readUInt16(data, offset);
 		offset += 2;
@@ -1530,34 +2228,20 @@ public class ARSCFileParser extends AbstractResourceParser {
 		return offset;
 	}
 
-	private int readUInt8(byte[] uint16, int offset) throws IOException {
-		int b0 = uint16[0 + offset] & 0x000000FF;
-		return b0;
+	private int readUInt8(ByteBuffer data, int offset) throws IOException {
+		return data.get(offset) & 0x000000FF;
 	}
 
-	private int readUInt16(byte[] uint16, int offset) throws IOException {
-		int b0 = uint16[0 + offset] & 0x000000FF;
-		int b1 = uint16[1 + offset] & 0x000000FF;
-		return (b1 << 8) + b0;
+	private int readUInt16(ByteBuffer data, int offset) throws IOException {
+		return data.getShort(offset) & 0x0000FFFF;
 	}
 
-	private int readUInt32(InputStream stream) throws IOException {
-		byte[] uint32 = new byte[4];
-		stream.read(uint32);
-		return readUInt32(uint32, 0);
-	}
-
-	private int readUInt32(byte[] uint32, int offset) throws IOException {
-		int b0 = uint32[0 + offset] & 0x000000FF;
-		int b1 = uint32[1 + offset] & 0x000000FF;
-		int b2 = uint32[2 + offset] & 0x000000FF;
-		int b3 = uint32[3 + offset] & 0x000000FF;
-		return (Math.abs(b3) << 24) + (Math.abs(b2) << 16)
-				+ (Math.abs(b1) << 8) + Math.abs(b0);
+	private int readUInt32(ByteBuffer data, int offset) throws IOException {
+		return data.getInt(offset);
 	}
 	
 	public Map<Integer, String> getGlobalStringPool() {
-		return this.stringTable;
+		return new StringPoolMap();
 	}
 	
 	public List<ResPackage> getPackages() {
@@ -1573,16 +2257,32 @@ public class ARSCFileParser extends AbstractResourceParser {
 	 * has been found, otherwise null.
 	 */
 	public AbstractResource findResource(int resourceId) {
-		ResourceId id = parseResourceId(resourceId);
-		for (ResPackage resPackage : this.packages)
-			if (resPackage.packageId == id.packageId) {
-				for (ResType resType : resPackage.types)
-					if (resType.id == id.typeId) {
-						return resType.getFirstResource(resourceId);
-					}
-				break;
-			}
-		return null;
+		int packageId = resourceId >>> 24;
+		if (packageId >= this.packagesById.length)
+			return null;
+		ResPackage resPackage = this.packagesById[packageId];
+		if (resPackage == null)
+			return null;
+		ResType resType = resPackage.getType((resourceId & 0x00FF0000) >> 16);
+		if (resType == null)
+			return null;
+		return resType.getFirstResource(resourceId);
+	}
+	
+	/**
+	 * Builds the lookup tables for finding packages, types, and resources
+	 * by ID. This method must be called after the resource data has been
+	 * parsed.
+	 */
+	private void buildResourceIndex() {
+		ResPackage[] packages = new ResPackage[256];
+		for (ResPackage resPackage : this.packages) {
+			if (resPackage.packageId >= 0 && resPackage.packageId < packages.length
+					&& packages[resPackage.packageId] == null)
+				packages[resPackage.packageId] = resPackage;
+			resPackage.buildResourceIndex();
+		}
+		this.packagesById = packages;
 	}
 	
 	/**
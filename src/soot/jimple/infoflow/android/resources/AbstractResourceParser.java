@@ -10,11 +10,9 @@
  ******************************************************************************/
 package soot.jimple.infoflow.android.resources;
 
-import java.io.File;
-import java.util.Enumeration;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Common base class for all resource parser classes
@@ -35,31 +33,52 @@ public abstract class AbstractResourceParser {
 	 */
 	protected void handleAndroidResourceFiles(String apk, Set<String> fileNameFilter,
 			IResourceHandler handler) {
-		File apkF = new File(apk);
-		if (!apkF.exists())
-			throw new RuntimeException("file '" + apk + "' does not exist!");
-
 		try {
-			ZipFile archive = null;
+			ApkArchive archive = new ApkArchive(apk);
 			try {
-				archive = new ZipFile(apkF);
-				Enumeration<?> entries = archive.entries();
-				while (entries.hasMoreElements()) {
-					ZipEntry entry = (ZipEntry) entries.nextElement();
-					String entryName = entry.getName();
-					
-					handler.handleResourceFile(entryName, fileNameFilter, archive.getInputStream(entry));
-				}
+				handleAndroidResourceFiles(archive, "", fileNameFilter, handler);
 			}
 			finally {
-				if (archive != null)
-					archive.close();
+				archive.close();
 			}
 		}
-		catch (Exception e) {
+		catch (IOException e) {
 			System.err.println("Error when looking for XML resource files in apk "
 					+ apk + ": " + e);
 			e.printStackTrace();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Provides the given handler with a stream for accessing the resource
+	 * files in the given, already opened apk file
+	 * @param archive The apk file to process
+	 * @param prefix Only entries whose names start with this prefix are passed
+	 * to the handler. Pass an empty string to process all entries.
+	 * @param fileNameFilter If this parameter is non-null, only files with a
+	 * name (excluding extension) in this set will be analyzed.
+	 * @param handler The handler for processing the apk file
+	 */
+	protected void handleAndroidResourceFiles(ApkArchive archive, String prefix,
+			Set<String> fileNameFilter, IResourceHandler handler) {
+		try {
+			// Stream the entries one by one instead of keeping all of them in
+			// the archive's cache
+			for (String entryName : archive.getEntryNames(prefix)) {
+				InputStream is = archive.getTransientInputStream(entryName);
+				try {
+					handler.handleResourceFile(entryName, fileNameFilter, is);
+				}
+				finally {
+					is.close();
+				}
+			}
+		}
+		catch (Exception e) {
+			System.err.println("Error when looking for XML resource files in apk "
+					+ archive.getFileName() + ": " + e);
+			e.printStackTrace();
 			if (e instanceof RuntimeException)
 				throw (RuntimeException) e;
 			else
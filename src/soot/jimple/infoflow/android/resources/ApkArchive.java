@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Shared access to the contents of an apk file. The file is opened only once
+ * and its central directory is indexed by entry name. Every entry is inflated
+ * at most once, no matter how many parsers request it.
+ */
+public class ApkArchive {
+
+	private final String fileName;
+	private final ZipFile archive;
+
+	/**
+	 * All entries in the order in which they appear in the archive
+	 */
+	private final List<ZipEntry> entries = new ArrayList<ZipEntry>();
+	/**
+	 * Index from entry names to the positions of the entries in the archive
+	 */
+	private final SortedMap<String, Integer> entriesByName = new TreeMap<String, Integer>();
+	/**
+	 * The contents of the entries that have already been inflated
+	 */
+	private final Map<String, byte[]> entryData = new ConcurrentHashMap<String, byte[]>();
+
+	/**
+	 * Opens the given apk file
+	 * @param apkFile The apk file to open
+	 * @throws IOException Thrown if the apk file cannot be read
+	 */
+	public ApkArchive(String apkFile) throws IOException {
+		File apkF = new File(apkFile);
+		if (!apkF.exists())
+			throw new RuntimeException("file '" + apkFile + "' does not exist!");
+
+		this.fileName = apkFile;
+		this.archive = new ZipFile(apkF);
+		Enumeration<? extends ZipEntry> zipEntries = this.archive.entries();
+		while (zipEntries.hasMoreElements()) {
+			ZipEntry entry = zipEntries.nextElement();
+			if (!this.entriesByName.containsKey(entry.getName())) {
+				this.entriesByName.put(entry.getName(), this.entries.size());
+				this.entries.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of the apk file
+	 * @return The name of the apk file
+	 */
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	/**
+	 * Gets all entries of the archive in the order in which they appear in
+	 * the archive's central directory
+	 * @return The entries of the archive
+	 */
+	public List<ZipEntry> getEntries() {
+		return Collections.unmodifiableList(this.entries);
+	}
+
+	/**
+	 * Gets the entry with the given name
+	 * @param entryName The name of the entry to get
+	 * @return The entry with the given name or null if no such entry exists
+	 */
+	public ZipEntry getEntry(String entryName) {
+		Integer idx = this.entriesByName.get(entryName);
+		return idx == null ? null : this.entries.get(idx);
+	}
+
+	/**
+	 * Gets the names of all entries whose names start with the given prefix,
+	 * e.g. "res/layout/". The names are returned in the order in which the
+	 * entries appear in the archive.
+	 * @param prefix The prefix of the entry names to get
+	 * @return The names of the entries starting with the given prefix
+	 */
+	public List<String> getEntryNames(String prefix) {
+		SortedMap<String, Integer> matches = prefix.isEmpty() ? this.entriesByName
+				: this.entriesByName.subMap(prefix, prefix + Character.MAX_VALUE);
+		List<Integer> indices = new ArrayList<Integer>(matches.values());
+		Collections.sort(indices);
+
+		List<String> names = new ArrayList<String>(indices.size());
+		for (int idx : indices)
+			names.add(this.entries.get(idx).getName());
+		return names;
+	}
+
+	/**
+	 * Gets the contents of the entry with the given name. The entry is only
+	 * inflated on the first request.
+	 * @param entryName The name of the entry to get
+	 * @return A read-only buffer containing the contents of the entry or null
+	 * if no such entry exists
+	 * @throws IOException Thrown if the entry cannot be read
+	 */
+	public ByteBuffer getBuffer(String entryName) throws IOException {
+		byte[] data = getData(entryName);
+		return data == null ? null : ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets a stream for reading the contents of the entry with the given
+	 * name. The entry is only inflated on the first request.
+	 * @param entryName The name of the entry to read
+	 * @return A stream for reading the entry or null if no such entry exists
+	 * @throws IOException Thrown if the entry cannot be read
+	 */
+	public InputStream getInputStream(String entryName) throws IOException {
+		byte[] data = getData(entryName);
+		return data == null ? null : new ByteArrayInputStream(data);
+	}
+
+	private byte[] getData(String entryName) throws IOException {
+		ZipEntry entry = getEntry(entryName);
+		if (entry == null)
+			return null;
+
+		// Different entries may be inflated concurrently, but every entry is
+		// inflated only once
+		synchronized (entry) {
+			byte[] data = this.entryData.get(entryName);
+			if (data != null)
+				return data;
+
+			data = inflate(entry);
+			this.entryData.put(entryName, data);
+			return data;
+		}
+	}
+
+	/**
+	 * Gets the contents of the entry with the given name without keeping
+	 * them in this archive. This is meant for large entries that are only
+	 * read once, e.g. the dex files. If the entry has already been inflated,
+	 * the cached contents are returned.
+	 * @param entryName The name of the entry to get
+	 * @return A read-only buffer containing the contents of the entry or null
+	 * if no such entry exists
+	 * @throws IOException Thrown if the entry cannot be read
+	 */
+	public ByteBuffer getTransientBuffer(String entryName) throws IOException {
+		ZipEntry entry = getEntry(entryName);
+		if (entry == null)
+			return null;
+
+		byte[] data = this.entryData.get(entryName);
+		if (data == null)
+			data = inflate(entry);
+		return ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets a stream for reading the contents of the entry with the given
+	 * name without keeping them in this archive. The entry is inflated while
+	 * it is read, so only a small buffer is held in memory. If the entry has
+	 * already been inflated, the cached contents are returned. The caller
+	 * must close the stream.
+	 * @param entryName The name of the entry to read
+	 * @return A stream for reading the entry or null if no such entry exists
+	 * @throws IOException Thrown if the entry cannot be read
+	 */
+	public InputStream getTransientInputStream(String entryName) throws IOException {
+		ZipEntry entry = getEntry(entryName);
+		if (entry == null)
+			return null;
+
+		byte[] data = this.entryData.get(entryName);
+		if (data != null)
+			return new ByteArrayInputStream(data);
+		return this.archive.getInputStream(entry);
+	}
+
+	/**
+	 * Gets the contents of the entry with the given name as an array that
+	 * belongs to the caller. The contents are not kept in this archive. If
+	 * the entry has already been inflated, a copy of the cached contents is
+	 * returned.
+	 * @param entryName The name of the entry to get
+	 * @return The contents of the entry or null if no such entry exists
+	 * @throws IOException Thrown if the entry cannot be read
+	 */
+	public byte[] getTransientData(String entryName) throws IOException {
+		ZipEntry entry = getEntry(entryName);
+		if (entry == null)
+			return null;
+
+		byte[] data = this.entryData.get(entryName);
+		return data == null ? inflate(entry) : data.clone();
+	}
+
+	private byte[] inflate(ZipEntry entry) throws IOException {
+		InputStream is = this.archive.getInputStream(entry);
+		try {
+			// If we know the size of the entry, we can inflate it straight
+			// into the result array
+			if (entry.getSize() >= 0 && entry.getSize() <= Integer.MAX_VALUE) {
+				byte[] data = new byte[(int) entry.getSize()];
+				int pos = 0;
+				while (pos < data.length) {
+					int len = is.read(data, pos, data.length - pos);
+					if (len < 0)
+						throw new EOFException("Unexpected end of entry " + entry.getName());
+					pos += len;
+				}
+				return data;
+			}
+
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = is.read(buffer)) >= 0)
+				bos.write(buffer, 0, len);
+			return bos.toByteArray();
+		}
+		finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Closes the apk file and releases all cached entry contents
+	 * @throws IOException Thrown if the apk file cannot be closed
+	 */
+	public void close() throws IOException {
+		this.entryData.clear();
+		this.archive.close();
+	}
+
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.resources;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import soot.jimple.infoflow.android.data.AndroidMethod;
+import soot.jimple.infoflow.android.data.MethodSpecIndex;
+
+/**
+ * Parser for the method references in the dex files of an apk. Every method
+ * that the app's code invokes or declares has an entry in the method table of
+ * one of the dex files. Reading this table is much cheaper than loading the
+ * code of the app.
+ */
+public class DexReferenceParser {
+
+	private static final int HEADER_SIZE = 0x70;
+	private static final int STRING_IDS_OFF = 0x3C;
+	private static final int TYPE_IDS_OFF = 0x44;
+	private static final int PROTO_IDS_OFF = 0x4C;
+	private static final int METHOD_IDS_SIZE = 0x58;
+	private static final int METHOD_IDS_OFF = 0x5C;
+
+	private final Set<String> referencedMethods = new HashSet<String>();
+
+	/**
+	 * Reads the method references from all dex files in the given apk, i.e.,
+	 * "classes.dex", "classes2.dex", and so on. The dex files are not kept
+	 * in the archive, so only one of them is in memory at a time.
+	 * @param archive The apk file to read
+	 * @throws IOException Thrown if a dex file cannot be read
+	 */
+	public void parse(ApkArchive archive) throws IOException {
+		ByteBuffer dex = archive.getTransientBuffer("classes.dex");
+		for (int i = 2; dex != null; i++) {
+			parse(dex);
+			dex = archive.getTransientBuffer("classes" + i + ".dex");
+		}
+	}
+
+	/**
+	 * Reads the method references from the given dex file
+	 * @param dex The contents of the dex file
+	 * @throws RuntimeException Thrown if the dex file is malformed or
+	 * truncated
+	 */
+	public void parse(ByteBuffer dex) {
+		try {
+			parseReferences(dex.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+		}
+		catch (IndexOutOfBoundsException ex) {
+			throw new RuntimeException("Dex file is truncated", ex);
+		}
+	}
+
+	private void parseReferences(ByteBuffer buffer) {
+		if (buffer.limit() < HEADER_SIZE || buffer.get(0) != 'd' || buffer.get(1) != 'e'
+				|| buffer.get(2) != 'x')
+			throw new RuntimeException("Not a dex file");
+
+		int stringIdsOff = buffer.getInt(STRING_IDS_OFF);
+		int typeIdsOff = buffer.getInt(TYPE_IDS_OFF);
+		int protoIdsOff = buffer.getInt(PROTO_IDS_OFF);
+		int methodIdsSize = buffer.getInt(METHOD_IDS_SIZE);
+		int methodIdsOff = buffer.getInt(METHOD_IDS_OFF);
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < methodIdsSize; i++) {
+			// method_id_item: ushort class_idx, ushort proto_idx, uint name_idx
+			int methodOff = methodIdsOff + i * 8;
+			int protoIdx = buffer.getShort(methodOff + 2) & 0xFFFF;
+			int nameIdx = buffer.getInt(methodOff + 4);
+
+			sb.setLength(0);
+			readString(buffer, stringIdsOff, nameIdx, sb);
+			sb.append('(');
+
+			// proto_id_item: uint shorty_idx, uint return_type_idx, uint parameters_off
+			int paramsOff = buffer.getInt(protoIdsOff + protoIdx * 12 + 8);
+			if (paramsOff != 0) {
+				int paramCount = buffer.getInt(paramsOff);
+				for (int j = 0; j < paramCount; j++) {
+					if (j > 0)
+						sb.append(',');
+					int typeIdx = buffer.getShort(paramsOff + 4 + j * 2) & 0xFFFF;
+					appendTypeName(buffer, stringIdsOff, typeIdsOff, typeIdx, sb);
+				}
+			}
+			sb.append(')');
+			referencedMethods.add(sb.toString());
+		}
+	}
+
+	/**
+	 * Appends the Java name of the type with the given index, e.g.
+	 * "java.lang.String[]" for "[Ljava/lang/String;"
+	 */
+	private void appendTypeName(ByteBuffer buffer, int stringIdsOff, int typeIdsOff,
+			int typeIdx, StringBuilder sb) {
+		StringBuilder descriptor = new StringBuilder();
+		readString(buffer, stringIdsOff, buffer.getInt(typeIdsOff + typeIdx * 4), descriptor);
+
+		int dims = 0;
+		while (dims < descriptor.length() && descriptor.charAt(dims) == '[')
+			dims++;
+		if (dims >= descriptor.length())
+			throw new RuntimeException("Invalid type descriptor: " + descriptor);
+
+		switch (descriptor.charAt(dims)) {
+		case 'Z': sb.append("boolean"); break;
+		case 'B': sb.append("byte"); break;
+		case 'S': sb.append("short"); break;
+		case 'C': sb.append("char"); break;
+		case 'I': sb.append("int"); break;
+		case 'J': sb.append("long"); break;
+		case 'F': sb.append("float"); break;
+		case 'D': sb.append("double"); break;
+		case 'V': sb.append("void"); break;
+		case 'L':
+			for (int i = dims + 1; i < descriptor.length() - 1; i++) {
+				char c = descriptor.charAt(i);
+				sb.append(c == '/' ? '.' : c);
+			}
+			break;
+		default:
+			throw new RuntimeException("Invalid type descriptor: " + descriptor);
+		}
+		for (int i = 0; i < dims; i++)
+			sb.append("[]");
+	}
+
+	/**
+	 * Appends the string with the given index. Strings in dex files are
+	 * stored in modified UTF-8.
+	 */
+	private void readString(ByteBuffer buffer, int stringIdsOff, int stringIdx, StringBuilder sb) {
+		int offset = buffer.getInt(stringIdsOff + stringIdx * 4);
+
+		// Skip the uleb128 length in UTF-16 code units
+		while ((buffer.get(offset++) & 0x80) != 0)
+			;
+
+		while (true) {
+			int b = buffer.get(offset++) & 0xFF;
+			if (b == 0)
+				break;
+			if ((b & 0x80) == 0)
+				sb.append((char) b);
+			else if ((b & 0xE0) == 0xC0)
+				sb.append((char) (((b & 0x1F) << 6) | (buffer.get(offset++) & 0x3F)));
+			else {
+				int b2 = buffer.get(offset++) & 0x3F;
+				int b3 = buffer.get(offset++) & 0x3F;
+				sb.append((char) (((b & 0x0F) << 12) | (b2 << 6) | b3));
+			}
+		}
+	}
+
+	/**
+	 * Removes all methods that are not referenced in the dex files that have
+	 * been parsed from the given collection. Methods are only compared by
+	 * name and parameter types, since the app may call them through a
+	 * subclass. Class wildcards are always kept.
+	 * @param methods The collection from which to remove the unreferenced
+	 * methods
+	 */
+	public void removeUnreferencedMethods(Collection<AndroidMethod> methods) {
+		for (Iterator<AndroidMethod> amIt = methods.iterator(); amIt.hasNext(); ) {
+			AndroidMethod am = amIt.next();
+			if (!am.getMethodName().equals(MethodSpecIndex.WILDCARD)
+					&& !referencedMethods.contains(MethodSpecIndex.getNameAndParameters(am)))
+				amIt.remove();
+		}
+	}
+
+	/**
+	 * Gets all methods referenced in the dex files that have been parsed.
+	 * The methods are given by name and parameter types in the format of
+	 * Soot's subsignatures without the return type, e.g.
+	 * "getString(int,java.lang.String)".
+	 * @return The methods referenced in the parsed dex files
+	 */
+	public Set<String> getReferencedMethods() {
+		return Collections.unmodifiableSet(this.referencedMethods);
+	}
+
+}
@@ -10,12 +10,22 @@
  ******************************************************************************/
 package soot.jimple.infoflow.android.resources;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import pxb.android.axml.AxmlReader;
 import pxb.android.axml.AxmlVisitor;
@@ -40,9 +50,23 @@ public class LayoutFileParser extends AbstractResourceParser {
 	
 	private final Map<Integer, LayoutControl> userControls = new HashMap<Integer, LayoutControl>();
 	private final Map<String, Set<String>> callbackMethods = new HashMap<String, Set<String>>();
-	private final Map<String, Set<String>> includeDependencies = new HashMap<String, Set<String>>();
+	/**
+	 * The include graph as a mapping from layout files to the layout files
+	 * they include
+	 */
+	private final Map<String, Set<String>> includedLayouts = new HashMap<String, Set<String>>();
 	private final String packageName;
 	private final ARSCFileParser resParser;
+	private int threadCount = 1;
+	
+	/**
+	 * Cache for the classes referenced in the layout files. The caches are
+	 * only valid for a single Soot run and thus cleared whenever the layout
+	 * files are parsed.
+	 */
+	private final Map<String, SootClass> layoutClasses = new HashMap<String, SootClass>();
+	private final Map<SootClass, Boolean> layoutClassFlags = new HashMap<SootClass, Boolean>();
+	private final Map<SootClass, Boolean> viewClassFlags = new HashMap<SootClass, Boolean>();
 	
 	private final static int TYPE_NUMBER_VARIATION_PASSWORD = 0x00000010;
 	private final static int TYPE_TEXT_VARIATION_PASSWORD = 0x00000080;
@@ -54,21 +78,38 @@ public class LayoutFileParser extends AbstractResourceParser {
 		this.resParser = resParser;
 	}
 	
+	/**
+	 * Gets the class for the given tag in a layout XML file. The result is
+	 * cached, so every tag name is only resolved once per run.
+	 * @param className The name of the class as given in the layout file
+	 * @return The class for the given tag, or null if no such class could be
+	 * found
+	 */
 	private SootClass getLayoutClass(String className) {
+		if (layoutClasses.containsKey(className))
+			return layoutClasses.get(className);
+		SootClass sc = resolveLayoutClass(className);
+		layoutClasses.put(className, sc);
+		return sc;
+	}
+	
+	private SootClass resolveLayoutClass(String className) {
 		if (className.contains("(") || className.contains("<") || className.contains("/")) {
 			System.err.println("Invalid class name " + className);
 			return null;
 		}
 		
-		SootClass sc = Scene.v().forceResolve(className, SootClass.BODIES);
+		// We only need the class hierarchy, so we do not force any method
+		// bodies to be loaded
+		SootClass sc = Scene.v().forceResolve(className, SootClass.SIGNATURES);
 		if ((sc == null || sc.isPhantom()) && !packageName.isEmpty())
-			sc = Scene.v().forceResolve(packageName + "." + className, SootClass.BODIES);
+			sc = Scene.v().forceResolve(packageName + "." + className, SootClass.SIGNATURES);
 		if (sc == null || sc.isPhantom())
-			sc = Scene.v().forceResolve("android.view." + className, SootClass.BODIES);
+			sc = Scene.v().forceResolve("android.view." + className, SootClass.SIGNATURES);
 		if (sc == null || sc.isPhantom())
-			sc = Scene.v().forceResolve("android.widget." + className, SootClass.BODIES);
+			sc = Scene.v().forceResolve("android.widget." + className, SootClass.SIGNATURES);
 		if (sc == null || sc.isPhantom())
-			sc = Scene.v().forceResolve("android.webkit." + className, SootClass.BODIES);
+			sc = Scene.v().forceResolve("android.webkit." + className, SootClass.SIGNATURES);
 		if (sc == null || sc.isPhantom()) {
    			System.err.println("Could not find layout class " + className);
    			return null;
@@ -80,6 +121,10 @@ public class LayoutFileParser extends AbstractResourceParser {
 		if (theClass == null)
 			return false;
 		
+		Boolean cached = layoutClassFlags.get(theClass);
+		if (cached != null)
+			return cached;
+		
    		// To make sure that nothing all wonky is going on here, we
    		// check the hierarchy to find the android view class
    		boolean found = false;
@@ -88,6 +133,7 @@ public class LayoutFileParser extends AbstractResourceParser {
    				found = true;
    				break;
    			}
+   		layoutClassFlags.put(theClass, found);
    		return found;
 	}
 	
@@ -95,6 +141,10 @@ public class LayoutFileParser extends AbstractResourceParser {
 		if (theClass == null)
 			return false;
 		
+		Boolean cached = viewClassFlags.get(theClass);
+		if (cached != null)
+			return cached;
+		
 		// To make sure that nothing all wonky is going on here, we
    		// check the hierarchy to find the android view class
    		boolean found = false;
@@ -104,12 +154,11 @@ public class LayoutFileParser extends AbstractResourceParser {
    				found = true;
    				break;
    			}
-   		if (!found) {
+   		if (!found)
    			System.err.println("Layout class " + theClass.getName() + " is not derived from "
    					+ "android.view.View");
-   			return false;
-   		}
-   		return true;
+   		viewClassFlags.put(theClass, found);
+   		return found;
 	}
 	
 	/**
@@ -145,12 +194,131 @@ public class LayoutFileParser extends AbstractResourceParser {
 	 */
 	private void addCallbackMethod(String layoutFile, String callback) {
 		addToMapSet(callbackMethods, layoutFile, callback);
+	}
+	
+	/**
+	 * Adds the callbacks of all included layout files to the callbacks of
+	 * the including files. The include graph is condensed into its strongly
+	 * connected components which are then processed in topological order,
+	 * so every edge is only considered once. The propagation works on a
+	 * separate map in which all files of the same component share the same
+	 * immutable callback set. Afterwards, the callbacks are added to the
+	 * mutable per-file sets in the result map.
+	 */
+	private void propagateIncludedCallbacks() {
+		Map<String, Set<String>> resolvedCallbacks = new HashMap<String, Set<String>>();
+		for (Entry<String, Set<String>> entry : callbackMethods.entrySet())
+			resolvedCallbacks.put(entry.getKey(), Collections.unmodifiableSet
+					(new HashSet<String>(entry.getValue())));
 		
-		// Recursively process any dependencies we might have collected before
-		// we have processed the target
-		if (includeDependencies.containsKey(layoutFile))
-			for (String target : includeDependencies.get(layoutFile))
-				addCallbackMethod(target, callback);
+		// The components are found in reverse topological order, i.e., all
+		// included files have been processed before the including ones
+		for (List<String> componentList : findIncludeComponents()) {
+			Set<String> component = new HashSet<String>(componentList);
+			Set<String> ownCallbacks = new HashSet<String>();
+			for (String layoutFile : component)
+				if (callbackMethods.containsKey(layoutFile))
+					ownCallbacks.addAll(callbackMethods.get(layoutFile));
+			
+			Set<Set<String>> includedCallbacks = Collections.newSetFromMap
+					(new IdentityHashMap<Set<String>, Boolean>());
+			for (String layoutFile : component)
+				if (includedLayouts.containsKey(layoutFile))
+					for (String target : includedLayouts.get(layoutFile))
+						if (!component.contains(target) && resolvedCallbacks.containsKey(target))
+							includedCallbacks.add(resolvedCallbacks.get(target));
+			
+			Set<String> callbacks;
+			if (ownCallbacks.isEmpty() && includedCallbacks.size() == 1)
+				callbacks = includedCallbacks.iterator().next();
+			else {
+				for (Set<String> included : includedCallbacks)
+					ownCallbacks.addAll(included);
+				if (ownCallbacks.isEmpty())
+					continue;
+				callbacks = Collections.unmodifiableSet(ownCallbacks);
+			}
+			for (String layoutFile : component)
+				resolvedCallbacks.put(layoutFile, callbacks);
+		}
+		
+		for (Entry<String, Set<String>> entry : resolvedCallbacks.entrySet()) {
+			Set<String> callbacks = callbackMethods.get(entry.getKey());
+			if (callbacks == null)
+				callbackMethods.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+			else
+				callbacks.addAll(entry.getValue());
+		}
+	}
+	
+	/**
+	 * Computes the strongly connected components of the include graph using
+	 * Tarjan's algorithm. The depth-first search uses an explicit stack, so
+	 * that deeply nested includes cannot overflow the call stack.
+	 * @return The strongly connected components of the include graph in
+	 * reverse topological order
+	 */
+	private List<List<String>> findIncludeComponents() {
+		List<List<String>> components = new ArrayList<List<String>>();
+		Map<String, Integer> index = new HashMap<String, Integer>();
+		Map<String, Integer> lowLink = new HashMap<String, Integer>();
+		List<String> componentStack = new ArrayList<String>();
+		Set<String> onStack = new HashSet<String>();
+		
+		List<String> path = new ArrayList<String>();
+		List<Iterator<String>> pathIterators = new ArrayList<Iterator<String>>();
+		for (String root : includedLayouts.keySet()) {
+			if (index.containsKey(root))
+				continue;
+			
+			String next = root;
+			while (next != null || !path.isEmpty()) {
+				if (next != null) {
+					// Start visiting a new node
+					index.put(next, index.size());
+					lowLink.put(next, index.get(next));
+					componentStack.add(next);
+					onStack.add(next);
+					path.add(next);
+					Set<String> targets = includedLayouts.get(next);
+					pathIterators.add(targets == null ? Collections.<String>emptySet().iterator()
+							: targets.iterator());
+					next = null;
+					continue;
+				}
+				
+				int top = path.size() - 1;
+				String node = path.get(top);
+				Iterator<String> it = pathIterators.get(top);
+				if (it.hasNext()) {
+					String target = it.next();
+					if (!index.containsKey(target))
+						next = target;
+					else if (onStack.contains(target))
+						lowLink.put(node, Math.min(lowLink.get(node), index.get(target)));
+					continue;
+				}
+				
+				// All successors have been visited
+				path.remove(top);
+				pathIterators.remove(top);
+				if (top > 0) {
+					String parent = path.get(top - 1);
+					lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+				}
+				if (lowLink.get(node).equals(index.get(node))) {
+					List<String> component = new ArrayList<String>();
+					String member;
+					do {
+						member = componentStack.remove(componentStack.size() - 1);
+						onStack.remove(member);
+						component.add(member);
+					} while (!member.equals(node));
+					components.add(component);
+				}
+			}
+		}
+		return components;
 	}
 	
 	/**
@@ -183,15 +351,9 @@ public class LayoutFileParser extends AbstractResourceParser {
     				}
     				String targetFile = ((StringResource) targetRes).getValue();
     				
-    				// If we have already processed the target file, we can
-    				// simply copy the callbacks we have found there
-        			if (callbackMethods.containsKey(targetFile))
-        				for (String callback : callbackMethods.get(targetFile))
-        					addCallbackMethod(layoutFile, callback);
-        			else {
-        				// We need to record a dependency to resolve later
-        				addToMapSet(includeDependencies, targetFile, layoutFile);
-        			}
+    				// The callbacks of the target file are propagated once
+    				// all layout files have been processed
+    				addToMapSet(includedLayouts, layoutFile, targetFile);
     			}
     		}
     		
@@ -290,6 +452,292 @@ public class LayoutFileParser extends AbstractResourceParser {
     	}
 	}
 	
+	/**
+	 * Attribute of a node in a decoded layout XML file
+	 */
+	private static class LayoutAttribute {
+		
+		private final String ns;
+		private final String name;
+		private final int resourceId;
+		private final int type;
+		private final Object value;
+		
+		public LayoutAttribute(String ns, String name, int resourceId, int type, Object value) {
+			this.ns = ns;
+			this.name = name;
+			this.resourceId = resourceId;
+			this.type = type;
+			this.value = value;
+		}
+		
+	}
+	
+	/**
+	 * Node of a decoded layout XML file. The nodes are recorded by the
+	 * {@link AxmlReader} and later replayed to the {@link LayoutParser}, so
+	 * that the binary XML data can be decoded without accessing the Soot
+	 * scene.
+	 */
+	private static class LayoutNode extends NodeVisitor {
+		
+		private final String ns;
+		private final String name;
+		private final List<LayoutAttribute> attributes = new ArrayList<LayoutAttribute>();
+		private final List<LayoutNode> children = new ArrayList<LayoutNode>();
+		private boolean ended = false;
+		
+		public LayoutNode(String ns, String name) {
+			this.ns = ns;
+			this.name = name;
+		}
+		
+		@Override
+		public NodeVisitor child(String ns, String name) {
+			LayoutNode node = new LayoutNode(ns, name);
+			children.add(node);
+			return node;
+		}
+		
+		@Override
+		public void attr(String ns, String name, int resourceId, int type, Object obj) {
+			attributes.add(new LayoutAttribute(ns, name, resourceId, type, obj));
+		}
+		
+		@Override
+		public void end() {
+			ended = true;
+		}
+		
+		/**
+		 * Passes this node and all of its children to the given visitor in
+		 * the same order in which the {@link AxmlReader} would have passed
+		 * them
+		 * @param visitor The visitor for this node
+		 */
+		public void accept(NodeVisitor visitor) {
+			for (LayoutAttribute attr : attributes)
+				visitor.attr(attr.ns, attr.name, attr.resourceId, attr.type, attr.value);
+			for (LayoutNode child : children) {
+				NodeVisitor childVisitor = visitor.child(child.ns, child.name);
+				if (childVisitor != null)
+					child.accept(childVisitor);
+			}
+			if (ended)
+				visitor.end();
+		}
+		
+	}
+	
+	/**
+	 * A layout XML file that has been decoded, but not yet analyzed
+	 */
+	private static class DecodedLayoutFile {
+		
+		private final String fileName;
+		private final List<LayoutNode> roots = new ArrayList<LayoutNode>();
+		private Exception error = null;
+		
+		public DecodedLayoutFile(String fileName) {
+			this.fileName = fileName;
+		}
+		
+	}
+	
+	/**
+	 * Sets the number of threads to use for decoding the layout XML files.
+	 * This option is set to 1 by default, i.e., all files are decoded
+	 * sequentially. The results are the same regardless of the number of
+	 * threads.
+	 * @param threadCount The number of threads to use for decoding the layout
+	 * files, or 1 to decode them sequentially
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = Math.max(1, threadCount);
+	}
+	
+	/**
+	 * Checks whether the given file in the layout folder shall be analyzed
+	 * @param fileName The name of the file in the apk
+	 * @param fileNameFilter If this parameter is non-null, only files with a
+	 * name (excluding extension) in this set will be analyzed.
+	 * @return True if the given file shall be analyzed, otherwise false
+	 */
+	private boolean isLayoutFileWanted(String fileName, Set<String> fileNameFilter) {
+		// We only process valid layout XML files
+		if (!fileName.startsWith("res/layout"))
+			return false;
+		if (!fileName.endsWith(".xml")) {
+			System.err.println("Skipping file " + fileName + " in layout folder...");
+			return false;
+		}
+		
+		// Get the fully-qualified class name
+		String entryClass = fileName.substring(0, fileName.lastIndexOf("."));
+		if (!packageName.isEmpty())
+			entryClass = packageName + "." + entryClass;
+		
+		// We are dealing with resource files
+		if (fileNameFilter != null) {
+			boolean found = false;
+			for (String s : fileNameFilter)
+				if (s.equalsIgnoreCase(entryClass)) {
+					found = true;
+					break;
+				}
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Decodes the given binary layout XML file. This method does not access
+	 * the Soot scene and can thus be run on multiple files in parallel.
+	 * @param archive The apk file containing the layout file
+	 * @param fileName The name of the layout file in the apk
+	 * @return The decoded layout file, or null if the file is empty
+	 */
+	private DecodedLayoutFile decodeLayoutFile(ApkArchive archive, String fileName) {
+		final DecodedLayoutFile layoutFile = new DecodedLayoutFile(fileName);
+		try {
+			// Every layout file is only read once, so there is no need to
+			// keep it in the archive's cache
+			byte[] data = archive.getTransientData(fileName);
+			if (data == null || data.length == 0)	// File empty?
+				return null;
+			
+			AxmlReader rdr = new AxmlReader(data);
+			rdr.accept(new AxmlVisitor() {
+				
+				@Override
+				public NodeVisitor first(String ns, String name) {
+					LayoutNode node = new LayoutNode(ns, name);
+					layoutFile.roots.add(node);
+					return node;
+				}
+				
+			});
+		}
+		catch (Exception ex) {
+			// Report the error once the nodes read so far have been analyzed
+			layoutFile.error = ex;
+		}
+		return layoutFile;
+	}
+	
+	/**
+	 * Analyzes the given decoded layout file and collects the user controls
+	 * and callbacks defined in it
+	 * @param layoutFile The decoded layout file to analyze
+	 */
+	private void analyzeLayoutFile(DecodedLayoutFile layoutFile) {
+		final String fileName = layoutFile.fileName;
+		try {
+			AxmlVisitor visitor = new AxmlVisitor() {
+				
+				@Override
+				public NodeVisitor first(String ns, String name) {
+					if (name == null)
+						return new LayoutParser(fileName, null);
+					
+					final String tname = name.trim();
+					final SootClass theClass = tname.isEmpty() || tname.equals("merge")
+							|| tname.equals("include") ? null : getLayoutClass(name.trim());
+					if (theClass == null || isLayoutClass(theClass))
+						return new LayoutParser(fileName, theClass);
+					else
+						return super.first(ns, name);
+				}
+			};
+			for (LayoutNode root : layoutFile.roots) {
+				NodeVisitor rootVisitor = visitor.first(root.ns, root.name);
+				if (rootVisitor != null)
+					root.accept(rootVisitor);
+			}
+			
+			if (layoutFile.error != null)
+				throw layoutFile.error;
+			System.out.println("Found " + userControls.size() + " layout controls in file "
+					+ fileName);
+		}
+		catch (Exception ex) {
+			System.err.println("Could not read binary XML file: " + ex.getMessage());
+			ex.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Parses all layout XML files in the given apk file. The files may be
+	 * decoded in parallel, but are analyzed one after another in the order in
+	 * which they appear in the apk file, so the results do not depend on the
+	 * number of threads.
+	 * @param archive The apk file in which to look for user controls
+	 * @param fileNameFilter If this parameter is non-null, only files with a
+	 * name (excluding extension) in this set will be analyzed.
+	 */
+	private void parseLayoutFiles(final ApkArchive archive, Set<String> fileNameFilter) {
+		layoutClasses.clear();
+		layoutClassFlags.clear();
+		viewClassFlags.clear();
+		
+		try {
+			analyzeLayoutFiles(archive, fileNameFilter);
+		}
+		finally {
+			propagateIncludedCallbacks();
+		}
+	}
+	
+	private void analyzeLayoutFiles(final ApkArchive archive, Set<String> fileNameFilter) {
+		List<String> layoutFiles = new ArrayList<String>();
+		for (String fileName : archive.getEntryNames("res/layout"))
+			if (isLayoutFileWanted(fileName, fileNameFilter))
+				layoutFiles.add(fileName);
+		
+		if (threadCount <= 1 || layoutFiles.size() <= 1) {
+			for (String fileName : layoutFiles) {
+				DecodedLayoutFile layoutFile = decodeLayoutFile(archive, fileName);
+				if (layoutFile != null)
+					analyzeLayoutFile(layoutFile);
+			}
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool
+				(Math.min(threadCount, layoutFiles.size()));
+		try {
+			List<Future<DecodedLayoutFile>> decodedFiles =
+					new ArrayList<Future<DecodedLayoutFile>>(layoutFiles.size());
+			for (final String fileName : layoutFiles)
+				decodedFiles.add(executor.submit(new Callable<DecodedLayoutFile>() {
+					
+					@Override
+					public DecodedLayoutFile call() throws Exception {
+						return decodeLayoutFile(archive, fileName);
+					}
+					
+				}));
+			
+			// Analyze the files while the remaining ones are being decoded
+			for (Future<DecodedLayoutFile> decodedFile : decodedFiles) {
+				DecodedLayoutFile layoutFile = decodedFile.get();
+				if (layoutFile != null)
+					analyzeLayoutFile(layoutFile);
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while parsing layout files", ex);
+		}
+		catch (ExecutionException ex) {
+			throw new RuntimeException("Could not decode layout file", ex.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
 	/**
 	 * Parses all layout XML files in the given APK file and loads the IDs of
 	 * the user controls in it.
@@ -298,74 +746,36 @@ public class LayoutFileParser extends AbstractResourceParser {
 	public void parseLayoutFile(final String fileName, final Set<String> classes) {
 		Transform transform = new Transform("wjtp.lfp", new SceneTransformer() {
 			protected void internalTransform(String phaseName, @SuppressWarnings("rawtypes") Map options) {
-				handleAndroidResourceFiles(fileName, /*classes,*/ null, new IResourceHandler() {
-					
-					@Override
-					public void handleResourceFile(final String fileName, Set<String> fileNameFilter, InputStream stream) {
-						// We only process valid layout XML files
-						if (!fileName.startsWith("res/layout"))
-							return;
-						if (!fileName.endsWith(".xml")) {
-							System.err.println("Skipping file " + fileName + " in layout folder...");
-							return;
-						}
-						
-						// Get the fully-qualified class name
-						String entryClass = fileName.substring(0, fileName.lastIndexOf("."));
-						if (!packageName.isEmpty())
-							entryClass = packageName + "." + entryClass;
-						
-						// We are dealing with resource files
-						if (!fileName.startsWith("res/layout"))
-							return;
-						if (fileNameFilter != null) {
-							boolean found = false;
-							for (String s : fileNameFilter)
-								if (s.equalsIgnoreCase(entryClass)) {
-									found = true;
-									break;
-								}
-							if (!found)
-								return;
-						}
-
-						try {
-							ByteArrayOutputStream bos = new ByteArrayOutputStream();
-							int in;
-							while ((in = stream.read()) >= 0)
-								bos.write(in);
-							bos.flush();
-							byte[] data = bos.toByteArray();
-							if (data == null || data.length == 0)	// File empty?
-								return;
-							
-							AxmlReader rdr = new AxmlReader(data);
-							rdr.accept(new AxmlVisitor() {
-								
-								@Override
-								public NodeVisitor first(String ns, String name) {
-									if (name == null)
-										return new LayoutParser(fileName, null);
-									
-									final String tname = name.trim();
-									final SootClass theClass = tname.isEmpty() || tname.equals("merge")
-											|| tname.equals("include") ? null : getLayoutClass(name.trim());
-									if (theClass == null || isLayoutClass(theClass))
-										return new LayoutParser(fileName, theClass);
-									else
-										return super.first(ns, name);
-								}
-							});
-							
-							System.out.println("Found " + userControls.size() + " layout controls in file "
-									+ fileName);
-						}
-						catch (Exception ex) {
-							System.err.println("Could not read binary XML file: " + ex.getMessage());
-							ex.printStackTrace();
-						}
+				try {
+					ApkArchive archive = new ApkArchive(fileName);
+					try {
+						parseLayoutFiles(archive, /*classes*/ null);
 					}
-				});
+					finally {
+						archive.close();
+					}
+				}
+				catch (IOException ex) {
+					System.err.println("Could not read apk file " + fileName + ": " + ex.getMessage());
+					ex.printStackTrace();
+					throw new RuntimeException(ex);
+				}
+			}
+		});
+		PackManager.v().getPack("wjtp").add(transform);
+	}
+	
+	/**
+	 * Parses all layout XML files in the given, already opened APK file and
+	 * loads the IDs of the user controls in it. Only the entries in the
+	 * layout folders are read from the archive. The archive must remain open
+	 * until the Soot packs have been run.
+	 * @param archive The APK file in which to look for user controls
+	 */
+	public void parseLayoutFile(final ApkArchive archive, final Set<String> classes) {
+		Transform transform = new Transform("wjtp.lfp", new SceneTransformer() {
+			protected void internalTransform(String phaseName, @SuppressWarnings("rawtypes") Map options) {
+				parseLayoutFiles(archive, /*classes*/ null);
 			}
 		});
 		PackManager.v().getPack("wjtp").add(transform);
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.resources.ARSCFileParser;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.AbstractResource;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.IntegerResource;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResConfig;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResPackage;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResType;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.StringResource;
+
+/**
+ * Tests checking that a resource table gives the same packages and
+ * resources regardless of where the parser reads it from
+ */
+public class ARSCFileParserInputTests {
+
+	private static byte[] createTable() {
+		return new ResourceTableBuilder()
+				.addIntegerType("integer", "res", 200, 3)
+				.addStringType("string", new String[] { "app_name", "title" },
+						new String[] { "Test", "Title" })
+				.addStringType("layout", new String[] { "main" },
+						new String[] { "res/layout/main.xml" })
+				.build();
+	}
+
+	/**
+	 * Gets a textual description of all packages and resources that the
+	 * given parser has found
+	 */
+	private static String describe(ARSCFileParser parser) {
+		StringBuilder sb = new StringBuilder();
+		for (ResPackage pkg : parser.getPackages()) {
+			sb.append("package ").append(pkg.getPackageId()).append(' ')
+					.append(pkg.getPackageName()).append('\n');
+			for (ResType type : pkg.getDeclaredTypes()) {
+				sb.append("type ").append(type.getTypeName()).append('\n');
+				for (ResConfig config : type.getConfigurations()) {
+					sb.append("config\n");
+					for (AbstractResource res : config.getResources()) {
+						sb.append(Integer.toHexString(res.getResourceID())).append(' ')
+								.append(res.getResourceName()).append(" = ");
+						if (res instanceof StringResource)
+							sb.append(((StringResource) res).getValue());
+						else if (res instanceof IntegerResource)
+							sb.append(((IntegerResource) res).getValue());
+						else
+							sb.append(res.getClass().getSimpleName());
+						sb.append('\n');
+					}
+				}
+			}
+		}
+		sb.append("strings ").append(parser.getGlobalStringPool()).append('\n');
+		return sb.toString();
+	}
+
+	@Test
+	public void sameResultsForAllInputs() throws IOException {
+		byte[] table = createTable();
+
+		ARSCFileParser streamParser = new ARSCFileParser();
+		streamParser.parse(new ByteArrayInputStream(table));
+		String expected = describe(streamParser);
+		Assert.assertTrue(expected.contains("7f0100c7 res199 = 199\n"));
+		Assert.assertTrue(expected.contains("7f0100c7 res199 = 599\n"));
+		Assert.assertTrue(expected.contains("7f030000 main = res/layout/main.xml\n"));
+
+		// Heap buffer
+		ARSCFileParser heapParser = new ARSCFileParser();
+		heapParser.parse(ByteBuffer.wrap(table));
+		Assert.assertEquals(expected, describe(heapParser));
+
+		// Direct buffer in which the table does not start at the beginning
+		ByteBuffer direct = ByteBuffer.allocateDirect(table.length + 3);
+		direct.put(new byte[3]).put(table);
+		direct.position(3);
+		ARSCFileParser directParser = new ARSCFileParser();
+		directParser.parse(direct);
+		Assert.assertEquals(expected, describe(directParser));
+
+		// Memory-mapped file
+		File tableFile = File.createTempFile("resources", ".arsc");
+		try {
+			FileOutputStream fos = new FileOutputStream(tableFile);
+			try {
+				fos.write(table);
+			}
+			finally {
+				fos.close();
+			}
+			ARSCFileParser fileParser = new ARSCFileParser();
+			fileParser.parseResourceFile(tableFile);
+			Assert.assertEquals(expected, describe(fileParser));
+		}
+		finally {
+			tableFile.delete();
+		}
+	}
+
+}
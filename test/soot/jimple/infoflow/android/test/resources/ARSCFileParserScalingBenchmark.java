@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Benchmark checking that the time for parsing a resource table grows
+ * linearly with the number of entries in it. The result depends on the load
+ * of the machine, so this class is not part of the default test suite,
+ * which only runs the "*Tests" classes.
+ */
+public class ARSCFileParserScalingBenchmark {
+
+	private static final int CONFIG_COUNT = 8;
+	private static final int SMALL_ENTRY_COUNT = 2000;
+	private static final int LARGE_ENTRY_COUNT = 4 * SMALL_ENTRY_COUNT;
+	private static final int RUNS = 5;
+
+	/**
+	 * Gets the minimum time in nanoseconds needed for parsing the given
+	 * resource table over a number of runs
+	 */
+	private static long measureParseTime(byte[] table) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long before = System.nanoTime();
+			ARSCFileParserScalingTests.parse(table);
+			best = Math.min(best, System.nanoTime() - before);
+		}
+		return best;
+	}
+
+	@Test
+	public void parseTimeScalesLinearly() throws IOException {
+		byte[] smallTable = ARSCFileParserScalingTests.createResourceTable
+				(SMALL_ENTRY_COUNT, CONFIG_COUNT);
+		byte[] largeTable = ARSCFileParserScalingTests.createResourceTable
+				(LARGE_ENTRY_COUNT, CONFIG_COUNT);
+
+		// Warm up the JIT before measuring
+		measureParseTime(smallTable);
+		measureParseTime(largeTable);
+
+		long smallTime = measureParseTime(smallTable);
+		long largeTime = measureParseTime(largeTable);
+		double ratio = (double) largeTime / (double) Math.max(smallTime, 1);
+
+		// Four times the entries must not take anywhere near sixteen times
+		// as long, which is what quadratic behavior would give us
+		Assert.assertTrue("Parse time grows super-linearly, parsing "
+				+ SMALL_ENTRY_COUNT * CONFIG_COUNT + " entries took " + smallTime / 1E6
+				+ " ms, parsing " + LARGE_ENTRY_COUNT * CONFIG_COUNT + " entries took "
+				+ largeTime / 1E6 + " ms", ratio < 10.0);
+	}
+
+}
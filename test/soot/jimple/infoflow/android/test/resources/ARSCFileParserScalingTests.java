@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.resources.ARSCFileParser;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.AbstractResource;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResConfig;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.ResType;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.StringResource;
+
+/**
+ * Tests for parsing resource tables with many entries and configurations,
+ * and for loading only some of their types. The timing checks are in
+ * {@link ARSCFileParserScalingBenchmark}, which is not part of the default
+ * test suite.
+ */
+public class ARSCFileParserScalingTests {
+
+	private static final int CONFIG_COUNT = 8;
+	private static final int LARGE_ENTRY_COUNT = 8000;
+
+	/**
+	 * Creates a binary resource table with a single package containing a
+	 * single type. The type is defined in the given number of configurations,
+	 * each of which contains the given number of integer entries.
+	 * @param entryCount The number of entries per configuration
+	 * @param configCount The number of configurations
+	 * @return The binary resource table
+	 */
+	static byte[] createResourceTable(int entryCount, int configCount) {
+		return new ResourceTableBuilder().addIntegerType("integer", "res", entryCount, configCount)
+				.build();
+	}
+
+	static ARSCFileParser parse(byte[] table) throws IOException {
+		ARSCFileParser parser = new ARSCFileParser();
+		parser.parse(new ByteArrayInputStream(table));
+		return parser;
+	}
+
+	@Test
+	public void resourceIdsSharedAcrossConfigurations() throws IOException {
+		ARSCFileParser parser = parse(createResourceTable(100, 3));
+		ResType resType = parser.getPackages().get(0).getDeclaredTypes().get(0);
+		Assert.assertEquals(3, resType.getConfigurations().size());
+		for (ResConfig config : resType.getConfigurations()) {
+			Assert.assertEquals(100, config.getResources().size());
+			for (int i = 0; i < 100; i++) {
+				AbstractResource res = config.getResources().get(i);
+				Assert.assertEquals("res" + i, res.getResourceName());
+				Assert.assertEquals(0x7f010000 + i, res.getResourceID());
+			}
+		}
+	}
+
+	@Test
+	public void resourceObjectsAreStable() throws IOException {
+		ARSCFileParser parser = parse(createResourceTable(10, 2));
+		ResConfig config = parser.getPackages().get(0).getDeclaredTypes().get(0)
+				.getConfigurations().get(0);
+		Assert.assertSame(config.getResources(), config.getResources());
+		Assert.assertSame(config.getResources().get(3), config.getResources().get(3));
+		Assert.assertSame(config.getResources().get(3), parser.findResource(0x7f010003));
+	}
+
+	@Test
+	public void largeTable() throws IOException {
+		ARSCFileParser parser = parse(createResourceTable(LARGE_ENTRY_COUNT, CONFIG_COUNT));
+		ResType resType = parser.getPackages().get(0).getDeclaredTypes().get(0);
+		Assert.assertEquals(CONFIG_COUNT, resType.getConfigurations().size());
+		for (ResConfig config : resType.getConfigurations())
+			Assert.assertEquals(LARGE_ENTRY_COUNT, config.getResources().size());
+
+		AbstractResource res = parser.findResource(0x7f010000 + LARGE_ENTRY_COUNT - 1);
+		Assert.assertNotNull(res);
+		Assert.assertEquals("res" + (LARGE_ENTRY_COUNT - 1), res.getResourceName());
+	}
+
+	@Test
+	public void typeFilter() throws IOException {
+		byte[] table = new ResourceTableBuilder()
+				.addIntegerType("integer", "res", 100, 3)
+				.addStringType("string", new String[] { "app_name", "title" },
+						new String[] { "Test", "Title" })
+				.addStringType("layout", new String[] { "main", "settings" },
+						new String[] { "res/layout/main.xml", "res/layout/settings.xml" })
+				.build();
+		ARSCFileParser fullParser = parse(table);
+		ARSCFileParser filteredParser = new ARSCFileParser(new HashSet<String>
+				(Arrays.asList("string", "layout")));
+		filteredParser.parse(new ByteArrayInputStream(table));
+
+		// The wanted types are the same as without the filter
+		List<ResType> filteredTypes = filteredParser.getPackages().get(0).getDeclaredTypes();
+		Assert.assertEquals(2, filteredTypes.size());
+		for (ResType filteredType : filteredTypes) {
+			ResType fullType = null;
+			for (ResType rt : fullParser.getPackages().get(0).getDeclaredTypes())
+				if (rt.getTypeName().equals(filteredType.getTypeName()))
+					fullType = rt;
+			Assert.assertNotNull(fullType);
+			Assert.assertEquals(fullType.getAllResources().size(),
+					filteredType.getAllResources().size());
+			for (AbstractResource res : filteredType.getAllResources()) {
+				AbstractResource fullRes = fullParser.findResource(res.getResourceID());
+				Assert.assertNotNull(fullRes);
+				Assert.assertEquals(fullRes.getResourceName(), res.getResourceName());
+				Assert.assertEquals(((StringResource) fullRes).getValue(),
+						((StringResource) res).getValue());
+				Assert.assertSame(res, filteredParser.findResource(res.getResourceID()));
+			}
+		}
+		Assert.assertEquals(0x7f030001, filteredParser.getPackages().get(0).getDeclaredTypes()
+				.get(1).getFirstResource("settings").getResourceID());
+		Assert.assertEquals("res/layout/settings.xml",
+				((StringResource) filteredParser.findResource(0x7f030001)).getValue());
+
+		// The other types are skipped
+		Assert.assertNotNull(fullParser.findResource(0x7f010000));
+		Assert.assertNull(filteredParser.findResource(0x7f010000));
+	}
+
+}
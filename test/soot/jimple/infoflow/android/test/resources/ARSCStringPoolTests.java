@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.resources.ARSCFileParser;
+import soot.jimple.infoflow.android.resources.ARSCFileParser.StringResource;
+
+/**
+ * Tests for the global string pool of resource tables, whose strings are
+ * only decoded when they are accessed
+ */
+public class ARSCStringPoolTests {
+
+	private static final String[] NAMES = { "app_name", "empty", "greeting", "chinese",
+			"layout_file" };
+	private static final String[] VALUES = { "Test", "", "gr\u00fc\u00dfe", "\u4e2d\u6587",
+			"res/layout/main.xml" };
+
+	private static ARSCFileParser parse(boolean utf8) throws IOException {
+		return ARSCFileParserScalingTests.parse(new ResourceTableBuilder().setUTF8(utf8)
+				.addStringType("string", NAMES, VALUES).build());
+	}
+
+	private static void checkStringPool(boolean utf8) throws IOException {
+		ARSCFileParser parser = parse(utf8);
+		Map<Integer, String> pool = parser.getGlobalStringPool();
+		Assert.assertEquals(VALUES.length, pool.size());
+
+		// Repeated accesses give the same string objects, also through new
+		// views and through the resources referring to the strings
+		for (int round = 0; round < 3; round++)
+			for (int i = VALUES.length - 1; i >= 0; i--) {
+				Assert.assertTrue(pool.containsKey(i));
+				Assert.assertEquals(VALUES[i], pool.get(i));
+				Assert.assertSame(pool.get(i), parser.getGlobalStringPool().get(i));
+				StringResource res = (StringResource) parser.findResource(0x7f010000 + i);
+				Assert.assertEquals(NAMES[i], res.getResourceName());
+				Assert.assertSame(pool.get(i), res.getValue());
+			}
+		Assert.assertFalse(pool.containsKey(-1));
+		Assert.assertFalse(pool.containsKey(VALUES.length));
+		Assert.assertFalse(pool.containsKey("0"));
+		Assert.assertNull(pool.get(VALUES.length));
+
+		// The entries are iterated in the order of the pool
+		for (int round = 0; round < 2; round++) {
+			Iterator<Entry<Integer, String>> it = pool.entrySet().iterator();
+			for (int i = 0; i < VALUES.length; i++) {
+				Assert.assertTrue(it.hasNext());
+				Entry<Integer, String> entry = it.next();
+				Assert.assertEquals(Integer.valueOf(i), entry.getKey());
+				Assert.assertEquals(VALUES[i], entry.getValue());
+			}
+			Assert.assertFalse(it.hasNext());
+		}
+
+		Map<Integer, String> expected = new HashMap<Integer, String>();
+		for (int i = 0; i < VALUES.length; i++)
+			expected.put(i, VALUES[i]);
+		Assert.assertEquals(expected, pool);
+	}
+
+	@Test
+	public void utf16StringPool() throws IOException {
+		checkStringPool(false);
+	}
+
+	@Test
+	public void utf8StringPool() throws IOException {
+		checkStringPool(true);
+	}
+
+	@Test
+	public void stringsDecodedOnAccess() throws IOException {
+		// Resources can be read before the pool has been accessed, and the
+		// pool then returns the strings decoded for them
+		ARSCFileParser parser = parse(true);
+		StringResource res = (StringResource) parser.findResource(0x7f010002);
+		Assert.assertEquals(VALUES[2], res.getValue());
+		Assert.assertSame(res.getValue(), parser.getGlobalStringPool().get(2));
+		Assert.assertEquals(parse(false).getGlobalStringPool(), parser.getGlobalStringPool());
+	}
+
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.infoflow.android.cache.ApkMetadata;
+import soot.jimple.infoflow.android.cache.ApkMetadataCache;
+import soot.jimple.infoflow.android.resources.LayoutControl;
+
+/**
+ * Tests for storing app metadata in the persistent cache
+ */
+public class ApkMetadataCacheTests {
+
+	private static final String EDIT_TEXT = "android.widget.EditText";
+
+	private File tempDir;
+	private File cacheDir;
+	private File androidJar;
+	private byte[] resourceTable;
+
+	@Before
+	public void setUp() throws IOException {
+		G.reset();
+		SootClass editText = new SootClass(EDIT_TEXT, Modifier.PUBLIC);
+		editText.setResolvingLevel(SootClass.SIGNATURES);
+		Scene.v().addClass(editText);
+
+		tempDir = File.createTempFile("metadatacache", "");
+		tempDir.delete();
+		tempDir.mkdirs();
+		cacheDir = new File(tempDir, "cache");
+		androidJar = new File(tempDir, "android.jar");
+		writeFile(androidJar, new byte[] { 1, 2, 3 });
+		resourceTable = new ResourceTableBuilder()
+				.addStringType("layout", new String[] { "main" }, new String[] { "res/layout/main.xml" })
+				.build();
+	}
+
+	@After
+	public void tearDown() {
+		delete(tempDir);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+
+	private static void writeFile(File file, byte[] data) throws IOException {
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(data);
+		}
+		finally {
+			fos.close();
+		}
+	}
+
+	/**
+	 * Creates an apk file with a manifest, a resource table, a layout file
+	 * and a dex file. Apps created with different manifests or dex files of
+	 * the same length have cache files of the same size.
+	 */
+	private File createApk(String name, String manifest, String dex) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		entries.put("AndroidManifest.xml", manifest.getBytes("UTF-8"));
+		entries.put("resources.arsc", resourceTable);
+		entries.put("res/layout/main.xml", LayoutFileParserTests.createLayout(0));
+		entries.put("classes.dex", dex.getBytes("UTF-8"));
+		File apkFile = LayoutFileParserTests.createApk(entries);
+		File target = new File(tempDir, name);
+		if (!apkFile.renameTo(target))
+			throw new IOException("Could not move " + apkFile + " to " + target);
+		return target;
+	}
+
+	private static ApkMetadata createMetadata() {
+		ApkMetadata metadata = new ApkMetadata();
+		metadata.setPackageName("com.example");
+		metadata.setApplicationName(null);
+		metadata.setEntryPointClasses(new HashSet<String>(Arrays.asList
+				("com.example.MainActivity", "com.example.\u00dcberService")));
+		metadata.setPermissions(new HashSet<String>(Arrays.asList
+				("android.permission.INTERNET")));
+
+		Map<Integer, LayoutControl> controls = new HashMap<Integer, LayoutControl>();
+		controls.put(0x7f050001, new LayoutControl(0x7f050001, new SootClass(EDIT_TEXT), true));
+		controls.put(0x7f050002, new LayoutControl(0x7f050002, null, false));
+		Map<String, Set<String>> callbacks = new HashMap<String, Set<String>>();
+		callbacks.put("res/layout/main.xml", new HashSet<String>(Arrays.asList("onClick0", "onOk")));
+		metadata.setLayoutData(controls, callbacks);
+		return metadata;
+	}
+
+	private File[] getCacheFiles() {
+		File[] files = cacheDir.listFiles();
+		return files == null ? new File[0] : files;
+	}
+
+	@Test
+	public void storeAndLoad() throws IOException {
+		File apk = createApk("app.apk", "manifest", "dex");
+		ApkMetadataCache cache = new ApkMetadataCache(cacheDir);
+		Assert.assertNull(cache.load(apk.getPath(), androidJar.getPath()));
+
+		cache.store(apk.getPath(), androidJar.getPath(), createMetadata());
+		ApkMetadata metadata = cache.load(apk.getPath(), androidJar.getPath());
+		Assert.assertNotNull(metadata);
+		Assert.assertEquals("com.example", metadata.getPackageName());
+		Assert.assertNull(metadata.getApplicationName());
+		Assert.assertEquals(createMetadata().getEntryPointClasses(), metadata.getEntryPointClasses());
+		Assert.assertEquals(createMetadata().getPermissions(), metadata.getPermissions());
+
+		// The resource table is taken from the apk if the metadata does not
+		// contain it
+		ByteBuffer table = metadata.getResourceTable();
+		byte[] tableData = new byte[table.remaining()];
+		table.get(tableData);
+		Assert.assertTrue(Arrays.equals(resourceTable, tableData));
+
+		Assert.assertTrue(metadata.hasLayoutData());
+		Map<Integer, LayoutControl> controls = metadata.createLayoutControls();
+		Assert.assertEquals(2, controls.size());
+		Assert.assertEquals(EDIT_TEXT, controls.get(0x7f050001).getViewClass().getName());
+		Assert.assertTrue(controls.get(0x7f050001).isSensitive());
+		Assert.assertNull(controls.get(0x7f050002).getViewClass());
+		Assert.assertFalse(controls.get(0x7f050002).isSensitive());
+		Assert.assertEquals(createMetadata().getLayoutCallbacks(), metadata.getLayoutCallbacks());
+	}
+
+	@Test
+	public void codeChange() throws IOException {
+		File apk = createApk("app.apk", "manifest", "dex");
+		File changedApk = createApk("changed.apk", "manifest", "xed");
+		ApkMetadataCache cache = new ApkMetadataCache(cacheDir);
+		cache.store(apk.getPath(), androidJar.getPath(), createMetadata());
+
+		// The manifest and resources are unchanged, but the layout data
+		// depends on the code
+		ApkMetadata metadata = cache.load(changedApk.getPath(), androidJar.getPath());
+		Assert.assertNotNull(metadata);
+		Assert.assertEquals("com.example", metadata.getPackageName());
+		Assert.assertFalse(metadata.hasLayoutData());
+		Assert.assertTrue(metadata.getLayoutCallbacks().isEmpty());
+
+		Assert.assertTrue(cache.load(apk.getPath(), androidJar.getPath()).hasLayoutData());
+	}
+
+	@Test
+	public void corruptedCacheFiles() throws IOException {
+		File apk = createApk("app.apk", "manifest", "dex");
+		ApkMetadataCache cache = new ApkMetadataCache(cacheDir);
+
+		// Truncated file
+		cache.store(apk.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertEquals(1, getCacheFiles().length);
+		File cacheFile = getCacheFiles()[0];
+		RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+		try {
+			raf.setLength(raf.length() / 2);
+		}
+		finally {
+			raf.close();
+		}
+		Assert.assertNull(cache.load(apk.getPath(), androidJar.getPath()));
+		Assert.assertFalse(cacheFile.exists());
+
+		// File that is not a cache file at all
+		cache.store(apk.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertTrue(cacheFile.exists());
+		writeFile(cacheFile, new byte[] { 'n', 'o', 'n', 's', 'e', 'n', 's', 'e' });
+		Assert.assertNull(cache.load(apk.getPath(), androidJar.getPath()));
+		Assert.assertFalse(cacheFile.exists());
+
+		// After storing the metadata again, the cache works as before
+		cache.store(apk.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertNotNull(cache.load(apk.getPath(), androidJar.getPath()));
+	}
+
+	@Test
+	public void eviction() throws IOException {
+		File apkA = createApk("a.apk", "manifest A", "dex");
+		File apkB = createApk("b.apk", "manifest B", "dex");
+		File apkC = createApk("c.apk", "manifest C", "dex");
+
+		// Find out how large a single cache file is
+		new ApkMetadataCache(cacheDir).store(apkA.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertEquals(1, getCacheFiles().length);
+		File fileA = getCacheFiles()[0];
+		long fileSize = fileA.length();
+
+		// The cache can hold two files
+		ApkMetadataCache cache = new ApkMetadataCache(cacheDir, 2 * fileSize);
+		cache.store(apkB.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertEquals(2, getCacheFiles().length);
+
+		// Make B the least recently used file by accessing A
+		long now = System.currentTimeMillis();
+		fileA.setLastModified(now - 20000);
+		for (File f : getCacheFiles())
+			if (!f.equals(fileA))
+				f.setLastModified(now - 10000);
+		Assert.assertNotNull(cache.load(apkA.getPath(), androidJar.getPath()));
+
+		cache.store(apkC.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertEquals(2, getCacheFiles().length);
+		Assert.assertNotNull(cache.load(apkA.getPath(), androidJar.getPath()));
+		Assert.assertNull(cache.load(apkB.getPath(), androidJar.getPath()));
+		Assert.assertNotNull(cache.load(apkC.getPath(), androidJar.getPath()));
+
+		// The file that has just been written is kept even if it exceeds the
+		// maximum size on its own
+		ApkMetadataCache tinyCache = new ApkMetadataCache(cacheDir, 1);
+		tinyCache.store(apkB.getPath(), androidJar.getPath(), createMetadata());
+		Assert.assertEquals(1, getCacheFiles().length);
+		Assert.assertNotNull(tinyCache.load(apkB.getPath(), androidJar.getPath()));
+	}
+
+}
@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.data.AndroidMethod;
+import soot.jimple.infoflow.android.resources.ApkArchive;
+import soot.jimple.infoflow.android.resources.DexReferenceParser;
+
+/**
+ * Tests for reading the method references from dex files
+ */
+public class DexReferenceParserTests {
+
+	/**
+	 * Minimal builder for dex files that only contain the tables the
+	 * reference parser reads: strings, types, prototypes and methods
+	 */
+	private static class DexBuilder {
+
+		private final List<String> strings = new ArrayList<String>();
+		private final List<Integer> types = new ArrayList<Integer>();
+		private final List<int[]> protos = new ArrayList<int[]>();
+		private final List<int[]> methods = new ArrayList<int[]>();
+
+		private int string(String s) {
+			int idx = strings.indexOf(s);
+			if (idx < 0) {
+				idx = strings.size();
+				strings.add(s);
+			}
+			return idx;
+		}
+
+		private int type(String descriptor) {
+			int stringIdx = string(descriptor);
+			int idx = types.indexOf(stringIdx);
+			if (idx < 0) {
+				idx = types.size();
+				types.add(stringIdx);
+			}
+			return idx;
+		}
+
+		/**
+		 * Adds a method to the dex file
+		 * @param classDescriptor The type descriptor of the declaring class
+		 * @param name The name of the method
+		 * @param returnType The type descriptor of the return type
+		 * @param paramTypes The type descriptors of the parameters
+		 */
+		DexBuilder method(String classDescriptor, String name, String returnType,
+				String... paramTypes) {
+			// proto: shorty, return type, parameter types...
+			int[] proto = new int[2 + paramTypes.length];
+			proto[0] = string("L");
+			proto[1] = type(returnType);
+			for (int i = 0; i < paramTypes.length; i++)
+				proto[2 + i] = type(paramTypes[i]);
+			protos.add(proto);
+			methods.add(new int[] { type(classDescriptor), protos.size() - 1, string(name) });
+			return this;
+		}
+
+		byte[] build() {
+			int stringIdsOff = 0x70;
+			int typeIdsOff = stringIdsOff + 4 * strings.size();
+			int protoIdsOff = typeIdsOff + 4 * types.size();
+			int methodIdsOff = protoIdsOff + 12 * protos.size();
+			int dataOff = methodIdsOff + 8 * methods.size();
+
+			// Parameter lists must be aligned to four bytes, so we put them
+			// before the strings
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			int[] paramsOffs = new int[protos.size()];
+			for (int i = 0; i < protos.size(); i++) {
+				int[] proto = protos.get(i);
+				if (proto.length == 2)
+					continue;
+				paramsOffs[i] = dataOff + data.size();
+				writeUInt32(data, proto.length - 2);
+				for (int j = 2; j < proto.length; j++)
+					writeUInt16(data, proto[j]);
+				while (data.size() % 4 != 0)
+					data.write(0);
+			}
+			int[] stringOffs = new int[strings.size()];
+			for (int i = 0; i < strings.size(); i++) {
+				stringOffs[i] = dataOff + data.size();
+				writeMUTF8(data, strings.get(i));
+			}
+
+			ByteArrayOutputStream dex = new ByteArrayOutputStream();
+			write(dex, "dex\n035\0".getBytes());
+			while (dex.size() < 0x38)
+				dex.write(0);
+			writeUInt32(dex, strings.size());
+			writeUInt32(dex, stringIdsOff);
+			writeUInt32(dex, types.size());
+			writeUInt32(dex, typeIdsOff);
+			writeUInt32(dex, protos.size());
+			writeUInt32(dex, protoIdsOff);
+			writeUInt32(dex, 0);
+			writeUInt32(dex, 0);
+			writeUInt32(dex, methods.size());
+			writeUInt32(dex, methodIdsOff);
+			while (dex.size() < 0x70)
+				dex.write(0);
+
+			for (int off : stringOffs)
+				writeUInt32(dex, off);
+			for (int stringIdx : types)
+				writeUInt32(dex, stringIdx);
+			for (int i = 0; i < protos.size(); i++) {
+				writeUInt32(dex, protos.get(i)[0]);
+				writeUInt32(dex, protos.get(i)[1]);
+				writeUInt32(dex, paramsOffs[i]);
+			}
+			for (int[] method : methods) {
+				writeUInt16(dex, method[0]);
+				writeUInt16(dex, method[1]);
+				writeUInt32(dex, method[2]);
+			}
+			write(dex, data.toByteArray());
+			return dex.toByteArray();
+		}
+
+	}
+
+	private static void writeMUTF8(ByteArrayOutputStream stream, String s) {
+		// uleb128 length in UTF-16 code units
+		int len = s.length();
+		while (len > 0x7F) {
+			stream.write((len & 0x7F) | 0x80);
+			len >>>= 7;
+		}
+		stream.write(len);
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c != 0 && c < 0x80)
+				stream.write(c);
+			else if (c < 0x800) {
+				stream.write(0xC0 | (c >> 6));
+				stream.write(0x80 | (c & 0x3F));
+			}
+			else {
+				stream.write(0xE0 | (c >> 12));
+				stream.write(0x80 | ((c >> 6) & 0x3F));
+				stream.write(0x80 | (c & 0x3F));
+			}
+		}
+		stream.write(0);
+	}
+
+	private static void writeUInt16(ByteArrayOutputStream stream, int value) {
+		stream.write(value & 0xFF);
+		stream.write((value >> 8) & 0xFF);
+	}
+
+	private static void writeUInt32(ByteArrayOutputStream stream, int value) {
+		writeUInt16(stream, value & 0xFFFF);
+		writeUInt16(stream, (value >> 16) & 0xFFFF);
+	}
+
+	private static void write(ByteArrayOutputStream stream, byte[] data) {
+		stream.write(data, 0, data.length);
+	}
+
+	private static byte[] createMainDex() {
+		return new DexBuilder()
+				.method("Lcom/example/Outer;", "run", "V")
+				.method("Lcom/example/Outer;", "process", "Ljava/lang/Object;",
+						"[Ljava/lang/String;", "I", "[[J")
+				.method("Lcom/example/Outer;", "onEvent", "V",
+						"Lcom/example/Outer$Inner;", "Z")
+				.method("Landroid/telephony/TelephonyManager;", "getDeviceId",
+						"Ljava/lang/String;")
+				.method("Lcom/example/Outer;", "gr\u00fc\u00dfe", "V", "C", "[B")
+				.method("Lcom/example/Outer;", "\u4e2d", "V", "S", "F", "D")
+				.build();
+	}
+
+	@Test
+	public void methodNamesAndParameters() {
+		DexReferenceParser parser = new DexReferenceParser();
+		parser.parse(ByteBuffer.wrap(createMainDex()));
+
+		Set<String> expected = new HashSet<String>(Arrays.asList(
+				"run()",
+				"process(java.lang.String[],int,long[][])",
+				"onEvent(com.example.Outer$Inner,boolean)",
+				"getDeviceId()",
+				"gr\u00fc\u00dfe(char,byte[])",
+				"\u4e2d(short,float,double)"));
+		Assert.assertEquals(expected, parser.getReferencedMethods());
+	}
+
+	@Test(expected=RuntimeException.class)
+	public void invalidDexFile() {
+		new DexReferenceParser().parse(ByteBuffer.wrap(new byte[0x70]));
+	}
+
+	@Test
+	public void truncatedDexFile() {
+		// The header is intact, but the tables it points to are cut off
+		byte[] dex = createMainDex();
+		DexReferenceParser parser = new DexReferenceParser();
+		try {
+			parser.parse(ByteBuffer.wrap(Arrays.copyOf(dex, dex.length / 2)));
+			Assert.fail("Truncated dex file was accepted");
+		}
+		catch (RuntimeException ex) {
+			Assert.assertTrue(ex.getCause() instanceof IndexOutOfBoundsException);
+		}
+	}
+
+	@Test
+	public void allDexFilesOfApk() throws IOException {
+		byte[] secondDex = new DexBuilder()
+				.method("Landroid/util/Log;", "i", "I", "Ljava/lang/String;", "Ljava/lang/String;")
+				.build();
+
+		File apkFile = File.createTempFile("multidex", ".apk");
+		try {
+			ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(apkFile));
+			try {
+				zos.putNextEntry(new ZipEntry("classes.dex"));
+				zos.write(createMainDex());
+				zos.closeEntry();
+				zos.putNextEntry(new ZipEntry("classes2.dex"));
+				zos.write(secondDex);
+				zos.closeEntry();
+			}
+			finally {
+				zos.close();
+			}
+
+			ApkArchive archive = new ApkArchive(apkFile.getPath());
+			DexReferenceParser parser = new DexReferenceParser();
+			try {
+				parser.parse(archive);
+			}
+			finally {
+				archive.close();
+			}
+			Assert.assertEquals(7, parser.getReferencedMethods().size());
+			Assert.assertTrue(parser.getReferencedMethods().contains("run()"));
+			Assert.assertTrue(parser.getReferencedMethods().contains
+					("i(java.lang.String,java.lang.String)"));
+		}
+		finally {
+			apkFile.delete();
+		}
+	}
+
+	@Test
+	public void removeUnreferencedMethods() {
+		DexReferenceParser parser = new DexReferenceParser();
+		parser.parse(ByteBuffer.wrap(createMainDex()));
+
+		AndroidMethod referenced = new AndroidMethod("getDeviceId", new ArrayList<String>(),
+				"java.lang.String", "android.telephony.TelephonyManager");
+		AndroidMethod otherClass = new AndroidMethod("onEvent",
+				Arrays.asList("com.example.Outer$Inner", "boolean"), "void",
+				"com.example.Base");
+		AndroidMethod otherParams = new AndroidMethod("getDeviceId", Arrays.asList("int"),
+				"java.lang.String", "android.telephony.TelephonyManager");
+		AndroidMethod unreferenced = new AndroidMethod("sendTextMessage", new ArrayList<String>(),
+				"void", "android.telephony.SmsManager");
+		AndroidMethod wildcard = new AndroidMethod("*", new ArrayList<String>(),
+				"*", "android.telephony.SmsManager");
+
+		Set<AndroidMethod> methods = new HashSet<AndroidMethod>(Arrays.asList
+				(referenced, otherClass, otherParams, unreferenced, wildcard));
+		parser.removeUnreferencedMethods(methods);
+
+		// Methods are compared by name and parameters only, since the app may
+		// call them through a different class
+		Assert.assertEquals(new HashSet<AndroidMethod>(Arrays.asList
+				(referenced, otherClass, wildcard)), methods);
+	}
+
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import pxb.android.axml.AxmlVisitor;
+import pxb.android.axml.AxmlVisitor.NodeVisitor;
+import pxb.android.axml.AxmlWriter;
+import soot.G;
+import soot.Modifier;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.infoflow.android.resources.ARSCFileParser;
+import soot.jimple.infoflow.android.resources.ApkArchive;
+import soot.jimple.infoflow.android.resources.LayoutControl;
+import soot.jimple.infoflow.android.resources.LayoutFileParser;
+
+/**
+ * Tests for parsing the layout XML files of an app
+ */
+public class LayoutFileParserTests {
+
+	private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+	private static final int ATTR_ID = 0x010100d0;
+	private static final int ATTR_ON_CLICK = 0x0101026f;
+	private static final int ATTR_PASSWORD = 0x0101015c;
+
+	private static final int LAYOUT_COUNT = 12;
+	private static final int SHARED_ID = 0x7f05ffff;
+
+	private static SootClass createClass(String name, SootClass superclass) {
+		SootClass sc = new SootClass(name, Modifier.PUBLIC);
+		sc.setResolvingLevel(SootClass.BODIES);
+		Scene.v().addClass(sc);
+		if (superclass != null)
+			sc.setSuperclass(superclass);
+		return sc;
+	}
+
+	private static void createViewClasses() {
+		SootClass object = createClass("java.lang.Object", null);
+		SootClass view = createClass("android.view.View", object);
+		SootClass viewGroup = createClass("android.view.ViewGroup", view);
+		createClass("android.widget.LinearLayout", viewGroup);
+		createClass("android.widget.Button", view);
+		createClass("android.widget.EditText", view);
+	}
+
+	/**
+	 * Creates a binary layout file with a button, a text field and a control
+	 * whose ID is shared by all layout files
+	 * @param idx The number of the layout file
+	 * @return The binary layout file
+	 */
+	static byte[] createLayout(int idx) throws IOException {
+		AxmlWriter writer = new AxmlWriter();
+		writer.ns("android", ANDROID_NS, -1);
+		NodeVisitor root = writer.first(null, "android.widget.LinearLayout");
+
+		NodeVisitor button = root.child(null, "android.widget.Button");
+		button.attr(ANDROID_NS, "id", ATTR_ID, AxmlVisitor.TYPE_REFERENCE, 0x7f050000 + 2 * idx);
+		button.attr(ANDROID_NS, "onClick", ATTR_ON_CLICK, AxmlVisitor.TYPE_STRING, "onClick" + idx);
+		button.end();
+
+		NodeVisitor text = root.child(null, "android.widget.EditText");
+		text.attr(ANDROID_NS, "id", ATTR_ID, AxmlVisitor.TYPE_REFERENCE, 0x7f050001 + 2 * idx);
+		text.attr(ANDROID_NS, "password", ATTR_PASSWORD, AxmlVisitor.TYPE_INT_BOOLEAN,
+				idx % 2 == 0 ? -1 : 0);
+		text.end();
+
+		// If the same ID is used in more than one file, the last file wins
+		NodeVisitor shared = root.child(null, idx % 2 == 0 ? "android.widget.Button"
+				: "android.widget.EditText");
+		shared.attr(ANDROID_NS, "id", ATTR_ID, AxmlVisitor.TYPE_REFERENCE, SHARED_ID);
+		shared.end();
+
+		root.end();
+		writer.end();
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Creates a binary layout file with a button and the given includes
+	 * @param callback The name of the button's onClick callback
+	 * @param includedLayouts The resource IDs of the included layouts
+	 * @return The binary layout file
+	 */
+	private static byte[] createIncludingLayout(String callback, int... includedLayouts)
+			throws IOException {
+		AxmlWriter writer = new AxmlWriter();
+		writer.ns("android", ANDROID_NS, -1);
+		NodeVisitor root = writer.first(null, "android.widget.LinearLayout");
+		if (callback != null) {
+			NodeVisitor button = root.child(null, "android.widget.Button");
+			button.attr(ANDROID_NS, "onClick", ATTR_ON_CLICK, AxmlVisitor.TYPE_STRING, callback);
+			button.end();
+		}
+		for (int layoutId : includedLayouts) {
+			NodeVisitor include = root.child(null, "include");
+			include.attr(null, "layout", 0, AxmlVisitor.TYPE_REFERENCE, layoutId);
+			include.end();
+		}
+		root.end();
+		writer.end();
+		return writer.toByteArray();
+	}
+
+	static File createApk(Map<String, byte[]> entries) throws IOException {
+		File apkFile = File.createTempFile("layouts", ".apk");
+		ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(apkFile));
+		try {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+		finally {
+			zos.close();
+		}
+		return apkFile;
+	}
+
+	static LayoutFileParser parseLayouts(File apkFile, ARSCFileParser resParser,
+			int threadCount) throws IOException {
+		G.reset();
+		createViewClasses();
+
+		LayoutFileParser parser = new LayoutFileParser("com.example", resParser);
+		parser.setThreadCount(threadCount);
+		ApkArchive archive = new ApkArchive(apkFile.getPath());
+		try {
+			parser.parseLayoutFile(archive, null);
+			PackManager.v().getPack("wjtp").apply();
+		}
+		finally {
+			archive.close();
+		}
+		return parser;
+	}
+
+	/**
+	 * Gets the user controls found by the given parser independent of the
+	 * Soot classes, which are recreated for every run
+	 */
+	private static Map<Integer, String> getControls(LayoutFileParser parser) {
+		Map<Integer, String> controls = new HashMap<Integer, String>();
+		for (LayoutControl control : parser.getUserControls().values())
+			controls.put(control.getID(), control.getViewClass().getName()
+					+ (control.isSensitive() ? " (sensitive)" : ""));
+		return controls;
+	}
+
+	@Test
+	public void parallelDecodingGivesSameResults() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		for (int i = 0; i < LAYOUT_COUNT; i++) {
+			entries.put("res/layout/layout" + i + ".xml", createLayout(i));
+
+			// A broken file in the middle of the archive must neither abort
+			// the parsing nor change the order of the results
+			if (i == LAYOUT_COUNT / 2) {
+				byte[] layout = createLayout(LAYOUT_COUNT);
+				entries.put("res/layout/truncated.xml", Arrays.copyOf(layout, layout.length / 2));
+			}
+		}
+
+		File apkFile = createApk(entries);
+		try {
+			LayoutFileParser sequential = parseLayouts(apkFile, new ARSCFileParser(), 1);
+			Map<Integer, String> controls = getControls(sequential);
+			Assert.assertEquals("android.widget.Button", controls.get(0x7f050000));
+			Assert.assertEquals("android.widget.EditText (sensitive)", controls.get(0x7f050001));
+			Assert.assertEquals("android.widget.EditText", controls.get(0x7f050003));
+			Assert.assertEquals("android.widget.EditText", controls.get(SHARED_ID));
+			for (int i = 0; i < LAYOUT_COUNT; i++)
+				Assert.assertEquals(new HashSet<String>(Arrays.asList("onClick" + i)),
+						sequential.getCallbackMethods().get("res/layout/layout" + i + ".xml"));
+
+			for (int threadCount : new int[] { 2, 4, 8 }) {
+				LayoutFileParser parallel = parseLayouts(apkFile, new ARSCFileParser(), threadCount);
+				Assert.assertEquals(controls, getControls(parallel));
+				Assert.assertEquals(sequential.getCallbackMethods(), parallel.getCallbackMethods());
+			}
+		}
+		finally {
+			apkFile.delete();
+		}
+	}
+
+	private static Set<String> set(String... values) {
+		return new HashSet<String>(Arrays.asList(values));
+	}
+
+	@Test
+	public void includeGraph() throws IOException {
+		// The resource IDs of the layouts are 0x7f010000 + index
+		String[] names = { "self", "a", "b", "outer", "top", "left", "right", "bottom" };
+		String[] files = new String[names.length];
+		for (int i = 0; i < names.length; i++)
+			files[i] = "res/layout/" + names[i] + ".xml";
+		ARSCFileParser resParser = ARSCFileParserScalingTests.parse(new ResourceTableBuilder()
+				.addStringType("layout", names, files).build());
+
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		// Self-include
+		entries.put(files[0], createIncludingLayout("onSelf", 0x7f010000));
+		// Two layouts including each other, and a third one including them
+		entries.put(files[1], createIncludingLayout("onA", 0x7f010002));
+		entries.put(files[2], createIncludingLayout("onB", 0x7f010001));
+		entries.put(files[3], createIncludingLayout(null, 0x7f010001));
+		// Diamond
+		entries.put(files[4], createIncludingLayout("onTop", 0x7f010005, 0x7f010006));
+		entries.put(files[5], createIncludingLayout("onLeft", 0x7f010007));
+		entries.put(files[6], createIncludingLayout("onRight", 0x7f010007));
+		entries.put(files[7], createIncludingLayout("onBottom"));
+
+		File apkFile = createApk(entries);
+		try {
+			Map<String, Set<String>> callbacks = parseLayouts(apkFile, resParser, 1)
+					.getCallbackMethods();
+			Assert.assertEquals(set("onSelf"), callbacks.get(files[0]));
+			Assert.assertEquals(set("onA", "onB"), callbacks.get(files[1]));
+			Assert.assertEquals(set("onA", "onB"), callbacks.get(files[2]));
+			Assert.assertEquals(set("onA", "onB"), callbacks.get(files[3]));
+			Assert.assertEquals(set("onTop", "onLeft", "onRight", "onBottom"),
+					callbacks.get(files[4]));
+			Assert.assertEquals(set("onLeft", "onBottom"), callbacks.get(files[5]));
+			Assert.assertEquals(set("onRight", "onBottom"), callbacks.get(files[6]));
+			Assert.assertEquals(set("onBottom"), callbacks.get(files[7]));
+
+			// The sets of the files in the cycle must not be shared
+			callbacks.get(files[1]).add("onOther");
+			Assert.assertEquals(set("onA", "onB"), callbacks.get(files[2]));
+			Assert.assertEquals(set("onA", "onB"), callbacks.get(files[3]));
+		}
+		finally {
+			apkFile.delete();
+		}
+	}
+
+	@Test
+	public void longIncludeChain() throws IOException {
+		// Every layout includes the next one, only the last one has a
+		// callback
+		final int chainLength = 5000;
+		String[] names = new String[chainLength];
+		String[] files = new String[chainLength];
+		for (int i = 0; i < chainLength; i++) {
+			names[i] = "chain" + i;
+			files[i] = "res/layout/" + names[i] + ".xml";
+		}
+		ARSCFileParser resParser = ARSCFileParserScalingTests.parse(new ResourceTableBuilder()
+				.addStringType("layout", names, files).build());
+
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		for (int i = 0; i < chainLength - 1; i++)
+			entries.put(files[i], createIncludingLayout(null, 0x7f010000 + i + 1));
+		entries.put(files[chainLength - 1], createIncludingLayout("onLast"));
+
+		File apkFile = createApk(entries);
+		try {
+			Map<String, Set<String>> callbacks = parseLayouts(apkFile, resParser, 1)
+					.getCallbackMethods();
+			Assert.assertEquals(chainLength, callbacks.size());
+			for (String file : files)
+				Assert.assertEquals(set("onLast"), callbacks.get(file));
+		}
+		finally {
+			apkFile.delete();
+		}
+	}
+
+}
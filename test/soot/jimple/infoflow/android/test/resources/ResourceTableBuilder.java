@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder for binary resource tables with a single package "test" with the
+ * ID 0x7f. Every type gets the next type ID, starting at 1, and every entry
+ * the next index in its type, so the resource IDs are predictable.
+ */
+class ResourceTableBuilder {
+
+	private static final int TYPE_STRING = 0x03;
+	private static final int TYPE_INT_DEC = 0x10;
+	private static final int UTF8_FLAG = 1 << 8;
+
+	/**
+	 * A resource type with the same entries in all of its configurations
+	 */
+	private static class TypeData {
+
+		private final String name;
+		private final int[] keys;
+		/**
+		 * The values per configuration as pairs of data type and data
+		 */
+		private final List<int[]> configs = new ArrayList<int[]>();
+
+		private TypeData(String name, int[] keys) {
+			this.name = name;
+			this.keys = keys;
+		}
+
+	}
+
+	private final List<String> globalStrings = new ArrayList<String>();
+	private final List<String> keys = new ArrayList<String>();
+	private final List<TypeData> types = new ArrayList<TypeData>();
+	private boolean utf8 = false;
+
+	/**
+	 * Sets whether the global string pool shall be encoded in UTF-8 instead
+	 * of UTF-16
+	 * @param utf8 True to encode the global string pool in UTF-8
+	 */
+	ResourceTableBuilder setUTF8(boolean utf8) {
+		this.utf8 = utf8;
+		return this;
+	}
+
+	private int key(String key) {
+		int idx = keys.indexOf(key);
+		if (idx < 0) {
+			idx = keys.size();
+			keys.add(key);
+		}
+		return idx;
+	}
+
+	/**
+	 * Adds a type with integer entries named keyPrefix0, keyPrefix1, ...
+	 * The entry with index i has the value configIdx * entryCount + i in the
+	 * configuration with index configIdx.
+	 * @param typeName The name of the type
+	 * @param keyPrefix The prefix of the entry names
+	 * @param entryCount The number of entries per configuration
+	 * @param configCount The number of configurations
+	 */
+	ResourceTableBuilder addIntegerType(String typeName, String keyPrefix, int entryCount,
+			int configCount) {
+		int[] typeKeys = new int[entryCount];
+		for (int i = 0; i < entryCount; i++)
+			typeKeys[i] = key(keyPrefix + i);
+		TypeData type = new TypeData(typeName, typeKeys);
+		for (int config = 0; config < configCount; config++) {
+			int[] values = new int[2 * entryCount];
+			for (int i = 0; i < entryCount; i++) {
+				values[2 * i] = TYPE_INT_DEC;
+				values[2 * i + 1] = config * entryCount + i;
+			}
+			type.configs.add(values);
+		}
+		types.add(type);
+		return this;
+	}
+
+	/**
+	 * Adds a type with string entries in a single configuration. The values
+	 * are put into the global string pool.
+	 * @param typeName The name of the type
+	 * @param entryNames The names of the entries
+	 * @param values The values of the entries
+	 */
+	ResourceTableBuilder addStringType(String typeName, String[] entryNames, String[] values) {
+		int[] typeKeys = new int[entryNames.length];
+		int[] config = new int[2 * entryNames.length];
+		for (int i = 0; i < entryNames.length; i++) {
+			typeKeys[i] = key(entryNames[i]);
+			config[2 * i] = TYPE_STRING;
+			config[2 * i + 1] = globalStrings.size();
+			globalStrings.add(values[i]);
+		}
+		TypeData type = new TypeData(typeName, typeKeys);
+		type.configs.add(config);
+		types.add(type);
+		return this;
+	}
+
+	/**
+	 * Creates the binary resource table
+	 * @return The binary resource table
+	 */
+	byte[] build() {
+		List<String> typeNames = new ArrayList<String>(types.size());
+		for (TypeData type : types)
+			typeNames.add(type.name);
+
+		ByteArrayOutputStream pkg = new ByteArrayOutputStream();
+		byte[] typePool = createStringPool(typeNames, false);
+		byte[] keyPool = createStringPool(keys, false);
+		int packageHeaderSize = 8 + 4 + 256 + 16;
+
+		// Package header
+		ByteArrayOutputStream pkgHeader = new ByteArrayOutputStream();
+		writeUInt32(pkgHeader, 0x7f);
+		for (int i = 0; i < 128; i++)
+			writeUInt16(pkgHeader, i < 4 ? "test".charAt(i) : 0);
+		writeUInt32(pkgHeader, packageHeaderSize);
+		writeUInt32(pkgHeader, typeNames.size());
+		writeUInt32(pkgHeader, packageHeaderSize + typePool.length);
+		writeUInt32(pkgHeader, keys.size());
+		write(pkg, pkgHeader.toByteArray());
+		write(pkg, typePool);
+		write(pkg, keyPool);
+
+		for (int typeIdx = 0; typeIdx < types.size(); typeIdx++) {
+			TypeData type = types.get(typeIdx);
+			int entryCount = type.keys.length;
+
+			// Type specification
+			writeUInt16(pkg, 0x0202);
+			writeUInt16(pkg, 16);
+			writeUInt32(pkg, 16 + 4 * entryCount);
+			pkg.write(typeIdx + 1);
+			pkg.write(0);
+			writeUInt16(pkg, 0);
+			writeUInt32(pkg, entryCount);
+			for (int i = 0; i < entryCount; i++)
+				writeUInt32(pkg, 0);
+
+			// Configurations
+			for (int[] values : type.configs) {
+				int headerSize = 20 + 28;
+				int entriesStart = headerSize + 4 * entryCount;
+				writeUInt16(pkg, 0x0201);
+				writeUInt16(pkg, headerSize);
+				writeUInt32(pkg, entriesStart + 16 * entryCount);
+				pkg.write(typeIdx + 1);
+				pkg.write(0);
+				writeUInt16(pkg, 0);
+				writeUInt32(pkg, entryCount);
+				writeUInt32(pkg, entriesStart);
+				writeUInt32(pkg, 28);
+				for (int i = 0; i < 24; i++)
+					pkg.write(0);
+				for (int i = 0; i < entryCount; i++)
+					writeUInt32(pkg, 16 * i);
+				for (int i = 0; i < entryCount; i++) {
+					writeUInt16(pkg, 8);
+					writeUInt16(pkg, 0);
+					writeUInt32(pkg, type.keys[i]);
+					writeUInt16(pkg, 8);
+					pkg.write(0);
+					pkg.write(values[2 * i]);
+					writeUInt32(pkg, values[2 * i + 1]);
+				}
+			}
+		}
+
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		byte[] globalPool = createStringPool(globalStrings, utf8);
+		byte[] pkgData = pkg.toByteArray();
+		writeUInt16(table, 0x0002);
+		writeUInt16(table, 12);
+		writeUInt32(table, 12 + globalPool.length + 8 + pkgData.length);
+		writeUInt32(table, 1);
+		write(table, globalPool);
+		writeUInt16(table, 0x0200);
+		writeUInt16(table, packageHeaderSize);
+		writeUInt32(table, 8 + pkgData.length);
+		write(table, pkgData);
+		return table.toByteArray();
+	}
+
+	private static byte[] createStringPool(List<String> strings, boolean utf8) {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		List<Integer> offsets = new ArrayList<Integer>(strings.size());
+		for (String s : strings) {
+			offsets.add(data.size());
+			if (utf8) {
+				// Length in characters, length in bytes, data, terminator
+				byte[] bytes;
+				try {
+					bytes = s.getBytes("UTF-8");
+				}
+				catch (UnsupportedEncodingException ex) {
+					throw new RuntimeException(ex);
+				}
+				data.write(s.length());
+				data.write(bytes.length);
+				write(data, bytes);
+				data.write(0);
+			}
+			else {
+				writeUInt16(data, s.length());
+				for (int i = 0; i < s.length(); i++)
+					writeUInt16(data, s.charAt(i));
+				writeUInt16(data, 0);
+			}
+		}
+		while (data.size() % 4 != 0)
+			data.write(0);
+
+		int headerSize = 28;
+		ByteArrayOutputStream pool = new ByteArrayOutputStream();
+		writeUInt16(pool, 0x0001);
+		writeUInt16(pool, headerSize);
+		writeUInt32(pool, headerSize + 4 * strings.size() + data.size());
+		writeUInt32(pool, strings.size());
+		writeUInt32(pool, 0);
+		writeUInt32(pool, utf8 ? UTF8_FLAG : 0);
+		writeUInt32(pool, headerSize + 4 * strings.size());
+		writeUInt32(pool, 0);
+		for (int offset : offsets)
+			writeUInt32(pool, offset);
+		write(pool, data.toByteArray());
+		return pool.toByteArray();
+	}
+
+	private static void writeUInt16(ByteArrayOutputStream stream, int value) {
+		stream.write(value & 0xFF);
+		stream.write((value >> 8) & 0xFF);
+	}
+
+	private static void writeUInt32(ByteArrayOutputStream stream, int value) {
+		writeUInt16(stream, value & 0xFFFF);
+		writeUInt16(stream, (value >> 16) & 0xFFFF);
+	}
+
+	private static void write(ByteArrayOutputStream stream, byte[] data) {
+		stream.write(data, 0, data.length);
+	}
+
+}
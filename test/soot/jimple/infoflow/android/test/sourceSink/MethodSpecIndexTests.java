@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.sourceSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.data.AndroidMethod;
+import soot.jimple.infoflow.android.data.MethodSpecIndex;
+
+/**
+ * Tests for matching methods against source and sink specifications
+ */
+public class MethodSpecIndexTests {
+
+	private static final String TM = "android.telephony.TelephonyManager";
+	private static final String LOG = "android.util.Log";
+
+	private static AndroidMethod method(String name, String returnType, String className,
+			String... params) {
+		return new AndroidMethod(name, new ArrayList<String>(Arrays.asList(params)),
+				returnType, className);
+	}
+
+	@Test
+	public void exactSubSignature() {
+		AndroidMethod deviceId = method("getDeviceId", "java.lang.String", TM);
+		MethodSpecIndex index = new MethodSpecIndex(Collections.singleton(deviceId), false);
+
+		Assert.assertSame(deviceId, index.getMatch(TM, "java.lang.String getDeviceId()"));
+		Assert.assertNull(index.getMatch(TM, "int getDeviceId()"));
+		Assert.assertNull(index.getMatch(TM, "java.lang.String getDeviceId(int)"));
+		Assert.assertNull(index.getMatch(TM, "java.lang.String getSubscriberId()"));
+		Assert.assertNull(index.getMatch("android.telephony.SmsManager",
+				"java.lang.String getDeviceId()"));
+		Assert.assertEquals(1, index.size());
+	}
+
+	@Test
+	public void parameters() {
+		AndroidMethod logI = method("i", "int", LOG, "java.lang.String", "java.lang.String");
+		MethodSpecIndex index = new MethodSpecIndex(Collections.singleton(logI), false);
+
+		Assert.assertEquals("i(java.lang.String,java.lang.String)",
+				MethodSpecIndex.getNameAndParameters(logI));
+		Assert.assertSame(logI, index.getMatch(LOG, "int i(java.lang.String,java.lang.String)"));
+		Assert.assertNull(index.getMatch(LOG, "int i(java.lang.String)"));
+		Assert.assertNull(index.getMatch(LOG,
+				"int i(java.lang.String,java.lang.String,java.lang.Throwable)"));
+	}
+
+	@Test
+	public void entryWithoutReturnType() {
+		// Entries without a return type match any return type. The old
+		// matching code never matched such entries.
+		AndroidMethod deviceId = method("getDeviceId", "", TM);
+		MethodSpecIndex index = new MethodSpecIndex(Collections.singleton(deviceId), false);
+
+		Assert.assertSame(deviceId, index.getMatch(TM, "java.lang.String getDeviceId()"));
+		Assert.assertSame(deviceId, index.getMatch(TM, "int getDeviceId()"));
+		Assert.assertNull(index.getMatch(TM, "java.lang.String getDeviceId(int)"));
+	}
+
+	@Test
+	public void weakMatching() {
+		AndroidMethod deviceId = method("getDeviceId", "java.lang.String", TM);
+
+		MethodSpecIndex strictIndex = new MethodSpecIndex(Collections.singleton(deviceId), false);
+		Assert.assertNull(strictIndex.getMatch(TM, "java.lang.Object getDeviceId()"));
+
+		MethodSpecIndex weakIndex = new MethodSpecIndex(Collections.singleton(deviceId), true);
+		Assert.assertSame(deviceId, weakIndex.getMatch(TM, "java.lang.String getDeviceId()"));
+		Assert.assertSame(deviceId, weakIndex.getMatch(TM, "java.lang.Object getDeviceId()"));
+		Assert.assertNull(weakIndex.getMatch(TM, "java.lang.String getDeviceId(int)"));
+	}
+
+	@Test
+	public void classWildcard() {
+		AndroidMethod wildcard = method(MethodSpecIndex.WILDCARD, "*", TM);
+		AndroidMethod deviceId = method("getDeviceId", "java.lang.String", TM);
+		MethodSpecIndex index = new MethodSpecIndex(Arrays.asList(wildcard, deviceId), false);
+
+		// Specific entries take precedence over the wildcard
+		Assert.assertSame(deviceId, index.getMatch(TM, "java.lang.String getDeviceId()"));
+		Assert.assertSame(wildcard, index.getMatch(TM, "java.lang.String getSubscriberId()"));
+		Assert.assertSame(wildcard, index.getMatch(TM, "void listen(int,boolean)"));
+
+		// The wildcard only covers its own class
+		Assert.assertNull(index.getMatch("android.telephony.SmsManager", "void foo()"));
+		Assert.assertEquals(2, index.size());
+	}
+
+	@Test
+	public void firstEntryWins() {
+		AndroidMethod first = method("getDeviceId", "java.lang.String", TM);
+		AndroidMethod second = method("getDeviceId", "java.lang.String", TM);
+		AndroidMethod firstWildcard = method(MethodSpecIndex.WILDCARD, "*", LOG);
+		AndroidMethod secondWildcard = method(MethodSpecIndex.WILDCARD, "*", LOG);
+		AndroidMethod firstWeak = method("getLine1Number", "", TM);
+		AndroidMethod secondWeak = method("getLine1Number", "", TM);
+
+		MethodSpecIndex index = new MethodSpecIndex(Arrays.asList(first, firstWildcard, firstWeak,
+				second, secondWildcard, secondWeak), false);
+		Assert.assertSame(first, index.getMatch(TM, "java.lang.String getDeviceId()"));
+		Assert.assertSame(firstWildcard, index.getMatch(LOG, "int d(java.lang.String)"));
+		Assert.assertSame(firstWeak, index.getMatch(TM, "java.lang.String getLine1Number()"));
+		Assert.assertEquals(3, index.size());
+	}
+
+	@Test
+	public void classNames() {
+		MethodSpecIndex index = new MethodSpecIndex(Arrays.asList(
+				method("getDeviceId", "java.lang.String", TM),
+				method("getSubscriberId", "java.lang.String", TM),
+				method("i", "int", LOG, "java.lang.String", "java.lang.String")), false);
+		Assert.assertEquals(2, index.getClassNames().size());
+		Assert.assertTrue(index.getClassNames().contains(TM));
+		Assert.assertTrue(index.getClassNames().contains(LOG));
+		Assert.assertEquals(3, index.size());
+	}
+
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.sourceSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.android.SetupApplication;
+import soot.jimple.infoflow.android.data.AndroidMethod;
+
+/**
+ * Tests for removing the sources and sinks that require permissions the app
+ * does not declare
+ */
+public class PermissionFilteringTests {
+
+	private static final String PHONE_STATE = "android.permission.READ_PHONE_STATE";
+	private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+	private static final String CONTACTS = "android.permission.READ_CONTACTS";
+
+	private static AndroidMethod createMethod(String name, String... permissions) {
+		return new AndroidMethod(name, new ArrayList<String>(), "java.lang.String",
+				"com.example.Data", new HashSet<String>(Arrays.asList(permissions)));
+	}
+
+	private static Set<String> getNames(Set<AndroidMethod> methods) {
+		Set<String> names = new HashSet<String>();
+		for (AndroidMethod am : methods)
+			names.add(am.getMethodName());
+		return names;
+	}
+
+	@Test
+	public void shortPermissionNames() {
+		Assert.assertEquals("READ_PHONE_STATE", SetupApplication.getShortPermissionName(PHONE_STATE));
+		Assert.assertEquals("READ_PHONE_STATE", SetupApplication.getShortPermissionName("READ_PHONE_STATE"));
+		Assert.assertEquals("INTERNET", SetupApplication.getShortPermissionName
+				(" android.permission.INTERNET "));
+		Assert.assertEquals("CUSTOM", SetupApplication.getShortPermissionName
+				("com.example.permission.CUSTOM"));
+		Assert.assertEquals("", SetupApplication.getShortPermissionName(""));
+	}
+
+	@Test
+	public void anyDeclaredPermissionSuffices() {
+		Set<AndroidMethod> methods = new HashSet<AndroidMethod>();
+		methods.add(createMethod("noPermission"));
+		methods.add(createMethod("emptyPermission", ""));
+		methods.add(createMethod("declared", PHONE_STATE));
+		methods.add(createMethod("undeclared", CONTACTS));
+		methods.add(createMethod("oneOfTwoDeclared", LOCATION, PHONE_STATE));
+		methods.add(createMethod("noneOfTwoDeclared", LOCATION, CONTACTS));
+		methods.add(createMethod("emptyAndUndeclared", "", CONTACTS));
+
+		Set<String> appPermissions = new HashSet<String>(Arrays.asList("READ_PHONE_STATE",
+				"INTERNET"));
+		SetupApplication.removeUnpermittedMethods(methods, appPermissions);
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("noPermission", "emptyPermission",
+				"declared", "oneOfTwoDeclared")), getNames(methods));
+	}
+
+	@Test
+	public void shortAndQualifiedNames() {
+		// The permission maps may list the permissions with or without the
+		// package, the app's permissions are always given by their short names
+		Set<AndroidMethod> methods = new HashSet<AndroidMethod>();
+		methods.add(createMethod("qualified", PHONE_STATE));
+		methods.add(createMethod("short", "READ_PHONE_STATE"));
+		methods.add(createMethod("otherPackage", "com.example.permission.READ_PHONE_STATE"));
+		methods.add(createMethod("shortUndeclared", "READ_CONTACTS"));
+
+		SetupApplication.removeUnpermittedMethods(methods,
+				new HashSet<String>(Arrays.asList("READ_PHONE_STATE")));
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("qualified", "short",
+				"otherPackage")), getNames(methods));
+
+		// Without any permissions, only the methods that require none are kept
+		methods.add(createMethod("free"));
+		SetupApplication.removeUnpermittedMethods(methods, new HashSet<String>());
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("free")), getNames(methods));
+	}
+
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.sourceSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.jimple.infoflow.android.AndroidSourceSinkManager;
+import soot.jimple.infoflow.android.data.AndroidMethod;
+import soot.jimple.infoflow.android.data.MethodSpecIndex;
+
+/**
+ * Tests checking that methods overriding or implementing a source or sink
+ * are treated as sources or sinks as well
+ */
+public class SourceSinkHierarchyTests {
+
+	private static final String STRING = "java.lang.String";
+
+	private Set<AndroidMethod> sources;
+	private Set<AndroidMethod> sinks;
+
+	@Before
+	public void setUp() {
+		G.reset();
+
+		// Library classes for which the specifications are given
+		SootClass data = createClass("com.lib.Data", Modifier.PUBLIC, null);
+		addMethod(data, "getSecret", Modifier.PUBLIC, RefType.v(STRING));
+		addMethod(data, "getStatic", Modifier.PUBLIC | Modifier.STATIC, RefType.v(STRING));
+		addMethod(data, "getPrivate", Modifier.PUBLIC, RefType.v(STRING));
+		addMethod(data, "<init>", Modifier.PUBLIC, VoidType.v());
+
+		SootClass sink = createClass("com.lib.Sink",
+				Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT, null);
+		addMethod(sink, "write", Modifier.PUBLIC | Modifier.ABSTRACT, VoidType.v(),
+				RefType.v(STRING));
+
+		SootClass store = createClass("com.lib.Store", Modifier.PUBLIC, null);
+		addMethod(store, "save", Modifier.PUBLIC, VoidType.v(), RefType.v(STRING));
+
+		// App classes overriding and implementing the library methods
+		SootClass myData = createClass("com.app.MyData", Modifier.PUBLIC, data);
+		addMethod(myData, "getSecret", Modifier.PUBLIC, RefType.v(STRING));
+		addMethod(myData, "getStatic", Modifier.PUBLIC | Modifier.STATIC, RefType.v(STRING));
+		addMethod(myData, "getPrivate", Modifier.PRIVATE, RefType.v(STRING));
+		addMethod(myData, "<init>", Modifier.PUBLIC, VoidType.v());
+		addMethod(myData, "getOther", Modifier.PUBLIC, RefType.v(STRING));
+
+		SootClass mySink = createClass("com.app.MySink", Modifier.PUBLIC, null);
+		mySink.addInterface(sink);
+		addMethod(mySink, "write", Modifier.PUBLIC, VoidType.v(), RefType.v(STRING));
+		addMethod(mySink, "write", Modifier.PUBLIC, VoidType.v(), RefType.v("java.lang.Object"));
+
+		SootClass subSink = createClass("com.app.SubSink", Modifier.PUBLIC, mySink);
+		addMethod(subSink, "write", Modifier.PUBLIC, VoidType.v(), RefType.v(STRING));
+
+		SootClass myStore = createClass("com.app.MyStore", Modifier.PUBLIC, store);
+		addMethod(myStore, "save", Modifier.PUBLIC, VoidType.v(), RefType.v(STRING));
+		addMethod(myStore, "load", Modifier.PUBLIC, RefType.v(STRING));
+
+		sources = new HashSet<AndroidMethod>();
+		for (String name : new String[] { "getSecret", "getStatic", "getPrivate" })
+			sources.add(new AndroidMethod(name, new ArrayList<String>(), STRING, "com.lib.Data"));
+		sources.add(new AndroidMethod("<init>", new ArrayList<String>(), "void", "com.lib.Data"));
+
+		sinks = new HashSet<AndroidMethod>();
+		sinks.add(new AndroidMethod("write", Arrays.asList(STRING), "void", "com.lib.Sink"));
+		sinks.add(new AndroidMethod(MethodSpecIndex.WILDCARD, new ArrayList<String>(), "*",
+				"com.lib.Store"));
+	}
+
+	private static SootClass createClass(String name, int modifiers, SootClass superclass) {
+		SootClass sc = new SootClass(name, modifiers);
+		sc.setResolvingLevel(SootClass.BODIES);
+		Scene.v().addClass(sc);
+		if (superclass != null)
+			sc.setSuperclass(superclass);
+		return sc;
+	}
+
+	private static void addMethod(SootClass sc, String name, int modifiers, Type returnType,
+			Type... paramTypes) {
+		sc.addMethod(new SootMethod(name, Arrays.asList(paramTypes), returnType, modifiers));
+	}
+
+	private static SootMethod getMethod(String className, String subSignature) {
+		return Scene.v().getSootClass(className).getMethod(subSignature);
+	}
+
+	private void assertFlags(AndroidSourceSinkManager manager, String className,
+			String subSignature, boolean source, boolean sink) {
+		SootMethod sm = getMethod(className, subSignature);
+		Assert.assertEquals("Wrong source flag for " + sm, source, manager.isSourceMethod(sm));
+		Assert.assertEquals("Wrong sink flag for " + sm, sink, manager.isSinkMethod(sm));
+	}
+
+	@Test
+	public void overridingMethods() {
+		AndroidSourceSinkManager manager = new AndroidSourceSinkManager(sources, sinks);
+		assertFlags(manager, "com.lib.Data", "java.lang.String getSecret()", true, false);
+		assertFlags(manager, "com.app.MyData", "java.lang.String getSecret()", true, false);
+		assertFlags(manager, "com.app.MyData", "java.lang.String getOther()", false, false);
+	}
+
+	@Test
+	public void methodsNotExpanded() {
+		// Static and private methods and constructors do not override the
+		// methods of their superclasses
+		AndroidSourceSinkManager manager = new AndroidSourceSinkManager(sources, sinks);
+		assertFlags(manager, "com.lib.Data", "java.lang.String getStatic()", true, false);
+		assertFlags(manager, "com.app.MyData", "java.lang.String getStatic()", false, false);
+		assertFlags(manager, "com.app.MyData", "java.lang.String getPrivate()", false, false);
+		assertFlags(manager, "com.lib.Data", "void <init>()", true, false);
+		assertFlags(manager, "com.app.MyData", "void <init>()", false, false);
+	}
+
+	@Test
+	public void interfaceImplementations() {
+		AndroidSourceSinkManager manager = new AndroidSourceSinkManager(sources, sinks);
+		assertFlags(manager, "com.app.MySink", "void write(java.lang.String)", false, true);
+		assertFlags(manager, "com.app.MySink", "void write(java.lang.Object)", false, false);
+
+		// The interface is only implemented by the superclass
+		assertFlags(manager, "com.app.SubSink", "void write(java.lang.String)", false, true);
+	}
+
+	@Test
+	public void wildcardOnSupertype() {
+		// A class wildcard covers the methods declared in its class, so only
+		// the methods overriding one of them become sinks
+		AndroidSourceSinkManager manager = new AndroidSourceSinkManager(sources, sinks);
+		assertFlags(manager, "com.lib.Store", "void save(java.lang.String)", false, true);
+		assertFlags(manager, "com.app.MyStore", "void save(java.lang.String)", false, true);
+		assertFlags(manager, "com.app.MyStore", "java.lang.String load()", false, false);
+	}
+
+	@Test
+	public void methodsAddedAfterPreparation() {
+		// Methods that are not in the prepared table take the slow path,
+		// which must give the same answers
+		AndroidSourceSinkManager manager = new AndroidSourceSinkManager(sources, sinks);
+		manager.prepare();
+
+		SootClass lateData = createClass("com.app.LateData", Modifier.PUBLIC,
+				Scene.v().getSootClass("com.app.MyData"));
+		addMethod(lateData, "getSecret", Modifier.PUBLIC, RefType.v(STRING));
+		addMethod(lateData, "getOther", Modifier.PUBLIC, RefType.v(STRING));
+
+		long missesBefore = manager.getLookupMisses();
+		assertFlags(manager, "com.app.LateData", "java.lang.String getSecret()", true, false);
+		assertFlags(manager, "com.app.LateData", "java.lang.String getOther()", false, false);
+		Assert.assertEquals(missesBefore + 4, manager.getLookupMisses());
+	}
+
+}
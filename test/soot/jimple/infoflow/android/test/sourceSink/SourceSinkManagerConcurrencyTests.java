@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.android.test.sourceSink;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.IntType;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.android.AndroidSourceSinkManager;
+import soot.jimple.infoflow.android.AndroidSourceSinkManager.LayoutMatchingMode;
+import soot.jimple.infoflow.android.data.AndroidMethod;
+import soot.jimple.infoflow.android.resources.LayoutControl;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.options.Options;
+
+/**
+ * Stress test checking that the source and sink manager gives the same
+ * answers when it is queried from many threads at once
+ */
+public class SourceSinkManagerConcurrencyTests {
+
+	private static final String CLASS_NAME = "com.example.Data";
+	private static final int METHOD_COUNT = 2000;
+	private static final int THREAD_COUNT = 16;
+	private static final int ROUNDS = 20;
+
+	private static final String ACTIVITY_CLASS = "com.example.MainActivity";
+	private static final String LISTENER_CLASS = "com.example.Listener";
+	private static final int UI_METHOD_COUNT = 200;
+	private static final int CONTROL_ID_BASE = 0x7f050000;
+
+	/**
+	 * A statement that shall be checked for being a source together with
+	 * the method containing it and the expected answer
+	 */
+	private static class SourceQuery {
+
+		private final Stmt stmt;
+		private final SootMethod method;
+		private final boolean expected;
+
+		private SourceQuery(Stmt stmt, SootMethod method, boolean expected) {
+			this.stmt = stmt;
+			this.method = method;
+			this.expected = expected;
+		}
+
+	}
+
+	private List<SootMethod> methods;
+	private Set<AndroidMethod> sources;
+	private Set<AndroidMethod> sinks;
+
+	@Before
+	public void setUp() {
+		G.reset();
+
+		SootClass dataClass = new SootClass(CLASS_NAME, Modifier.PUBLIC);
+		Scene.v().addClass(dataClass);
+
+		methods = new ArrayList<SootMethod>(METHOD_COUNT);
+		sources = new HashSet<AndroidMethod>();
+		sinks = new HashSet<AndroidMethod>();
+		for (int i = 0; i < METHOD_COUNT; i++) {
+			SootMethod sm = new SootMethod("get" + i, new ArrayList<Type>(),
+					RefType.v("java.lang.String"), Modifier.PUBLIC);
+			dataClass.addMethod(sm);
+			methods.add(sm);
+
+			if (i % 3 == 0)
+				sources.add(new AndroidMethod("get" + i, new ArrayList<String>(),
+						"java.lang.String", CLASS_NAME));
+			if (i % 5 == 0)
+				sinks.add(new AndroidMethod("get" + i, new ArrayList<String>(),
+						"java.lang.String", CLASS_NAME));
+		}
+	}
+
+	/**
+	 * Queries the given manager for all methods in the given order
+	 * @param manager The manager to query
+	 * @param order The methods to query
+	 * @return The answers, two per method
+	 */
+	private static boolean[] query(AndroidSourceSinkManager manager, List<SootMethod> order) {
+		boolean[] results = new boolean[2 * METHOD_COUNT];
+		for (SootMethod sm : order) {
+			int idx = Integer.parseInt(sm.getName().substring(3));
+			results[2 * idx] = manager.isSourceMethod(sm);
+			results[2 * idx + 1] = manager.isSinkMethod(sm);
+		}
+		return results;
+	}
+
+	@Test(timeout=300000)
+	public void concurrentQueriesMatchSequentialRun() throws Exception {
+		// Single-threaded reference run
+		boolean[] expected = query(new AndroidSourceSinkManager(sources, sinks), methods);
+		for (int i = 0; i < METHOD_COUNT; i++) {
+			Assert.assertEquals(i % 3 == 0, expected[2 * i]);
+			Assert.assertEquals(i % 5 == 0, expected[2 * i + 1]);
+		}
+
+		for (int round = 0; round < ROUNDS; round++) {
+			// All threads start at the same time on a manager that has not
+			// been prepared yet
+			final AndroidSourceSinkManager manager = new AndroidSourceSinkManager(sources, sinks);
+			manager.setCountLookups(true);
+			final CountDownLatch startSignal = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+			try {
+				List<Future<boolean[]>> futures = new ArrayList<Future<boolean[]>>();
+				for (int t = 0; t < THREAD_COUNT; t++) {
+					final List<SootMethod> order = new ArrayList<SootMethod>(methods);
+					Collections.shuffle(order, new Random(round * THREAD_COUNT + t));
+					futures.add(executor.submit(new Callable<boolean[]>() {
+
+						@Override
+						public boolean[] call() throws Exception {
+							startSignal.await();
+							return query(manager, order);
+						}
+
+					}));
+				}
+				startSignal.countDown();
+
+				for (Future<boolean[]> future : futures) {
+					boolean[] actual = future.get();
+					for (int i = 0; i < expected.length; i++)
+						Assert.assertEquals("Wrong result for method get" + (i / 2),
+								expected[i], actual[i]);
+				}
+			}
+			finally {
+				executor.shutdownNow();
+			}
+
+			Assert.assertEquals(2L * METHOD_COUNT * THREAD_COUNT,
+					manager.getLookupHits() + manager.getLookupMisses());
+		}
+	}
+
+	private static SootClass createClass(String name, SootClass superclass) {
+		SootClass sc = new SootClass(name, Modifier.PUBLIC);
+		sc.setResolvingLevel(SootClass.BODIES);
+		Scene.v().addClass(sc);
+		if (superclass != null)
+			sc.setSuperclass(superclass);
+		return sc;
+	}
+
+	/**
+	 * Creates an activity whose methods look up UI controls using
+	 * findViewById and a listener whose methods receive data through their
+	 * parameters. The controls with even indices are sensitive, and the
+	 * listener methods with even indices are callbacks. The Scene must have
+	 * been reset before.
+	 * @param callbacks The set to which to add the callback methods
+	 * @return The statements to check for being sources
+	 */
+	private static List<SourceQuery> createUIClasses(Set<AndroidMethod> callbacks) {
+		// The constant propagation builds exceptional unit graphs, which need
+		// the exception classes of the Java runtime
+		Options.v().set_prepend_classpath(true);
+		Options.v().set_allow_phantom_refs(true);
+		Scene.v().loadBasicClasses();
+		SootClass objectClass = Scene.v().getSootClass("java.lang.Object");
+		SootClass viewClass = createClass("android.view.View", objectClass);
+		SootClass activityClass = createClass("android.app.Activity", objectClass);
+		SootMethod findViewById = new SootMethod("findViewById",
+				Arrays.<Type>asList(IntType.v()), viewClass.getType(), Modifier.PUBLIC);
+		activityClass.addMethod(findViewById);
+
+		List<SourceQuery> queries = new ArrayList<SourceQuery>();
+		Jimple j = Jimple.v();
+		SootClass mainActivity = createClass(ACTIVITY_CLASS, activityClass);
+		for (int i = 0; i < UI_METHOD_COUNT; i++) {
+			SootMethod sm = new SootMethod("showControl" + i, new ArrayList<Type>(),
+					VoidType.v(), Modifier.PUBLIC);
+			mainActivity.addMethod(sm);
+
+			// The resource ID is either passed directly or copied between
+			// locals, which the constant propagation folds into the call
+			JimpleBody body = j.newBody(sm);
+			Local thisLocal = j.newLocal("r0", mainActivity.getType());
+			Local viewLocal = j.newLocal("r1", viewClass.getType());
+			Local idLocal = j.newLocal("i0", IntType.v());
+			Local copyLocal = j.newLocal("i1", IntType.v());
+			body.getLocals().addAll(Arrays.asList(thisLocal, viewLocal, idLocal, copyLocal));
+			body.getUnits().add(j.newIdentityStmt(thisLocal, j.newThisRef(mainActivity.getType())));
+			Stmt findStmt;
+			if (i % 4 < 2)
+				findStmt = j.newAssignStmt(viewLocal, j.newVirtualInvokeExpr(thisLocal,
+						findViewById.makeRef(), Arrays.asList(IntConstant.v(CONTROL_ID_BASE + i))));
+			else {
+				body.getUnits().add(j.newAssignStmt(idLocal, IntConstant.v(CONTROL_ID_BASE + i)));
+				body.getUnits().add(j.newAssignStmt(copyLocal, idLocal));
+				findStmt = j.newAssignStmt(viewLocal, j.newVirtualInvokeExpr(thisLocal,
+						findViewById.makeRef(), Arrays.asList(copyLocal)));
+			}
+			body.getUnits().add(findStmt);
+			body.getUnits().add(j.newReturnVoidStmt());
+			sm.setActiveBody(body);
+			queries.add(new SourceQuery(findStmt, sm, i % 2 == 0));
+		}
+
+		SootClass listener = createClass(LISTENER_CLASS, objectClass);
+		RefType stringType = RefType.v("java.lang.String");
+		for (int i = 0; i < UI_METHOD_COUNT; i++) {
+			SootMethod sm = new SootMethod("onEvent" + i, Arrays.<Type>asList(stringType),
+					VoidType.v(), Modifier.PUBLIC);
+			listener.addMethod(sm);
+
+			JimpleBody body = j.newBody(sm);
+			Local thisLocal = j.newLocal("r0", listener.getType());
+			Local paramLocal = j.newLocal("r1", stringType);
+			body.getLocals().addAll(Arrays.asList(thisLocal, paramLocal));
+			Stmt thisStmt = j.newIdentityStmt(thisLocal, j.newThisRef(listener.getType()));
+			Stmt paramStmt = j.newIdentityStmt(paramLocal, j.newParameterRef(stringType, 0));
+			body.getUnits().add(thisStmt);
+			body.getUnits().add(paramStmt);
+			body.getUnits().add(j.newReturnVoidStmt());
+			sm.setActiveBody(body);
+
+			if (i % 2 == 0)
+				callbacks.add(new AndroidMethod(sm));
+			queries.add(new SourceQuery(thisStmt, sm, false));
+			queries.add(new SourceQuery(paramStmt, sm, i % 2 == 0));
+		}
+		return queries;
+	}
+
+	/**
+	 * Creates an interprocedural control flow graph that only knows which
+	 * method contains which statement
+	 * @param queries The statements and the methods containing them
+	 * @return The control flow graph
+	 */
+	@SuppressWarnings("unchecked")
+	private static BiDiInterproceduralCFG<Unit, SootMethod> createCFG(List<SourceQuery> queries) {
+		final Map<Unit, SootMethod> owners = new HashMap<Unit, SootMethod>();
+		for (SourceQuery query : queries)
+			owners.put(query.stmt, query.method);
+		return (BiDiInterproceduralCFG<Unit, SootMethod>) Proxy.newProxyInstance
+				(SourceSinkManagerConcurrencyTests.class.getClassLoader(),
+				new Class<?>[] { BiDiInterproceduralCFG.class },
+				new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getMethodOf"))
+							return owners.get(args[0]);
+						throw new UnsupportedOperationException(method.getName());
+					}
+
+				});
+	}
+
+	@Test(timeout=300000)
+	public void concurrentStatementQueries() throws Exception {
+		Map<Integer, LayoutControl> controls = new HashMap<Integer, LayoutControl>();
+		for (int i = 0; i < UI_METHOD_COUNT; i++)
+			controls.put(CONTROL_ID_BASE + i, new LayoutControl(CONTROL_ID_BASE + i, null, i % 2 == 0));
+
+		for (int round = 0; round < ROUNDS; round++) {
+			// The first query runs the constant propagation that rewrites
+			// the method bodies, so every round needs fresh bodies
+			G.reset();
+			Set<AndroidMethod> callbacks = new HashSet<AndroidMethod>();
+			List<SourceQuery> queries = createUIClasses(callbacks);
+			final BiDiInterproceduralCFG<Unit, SootMethod> cfg = createCFG(queries);
+
+			final AndroidSourceSinkManager manager = new AndroidSourceSinkManager
+					(new HashSet<AndroidMethod>(), new HashSet<AndroidMethod>(), callbacks, false,
+					LayoutMatchingMode.MatchSensitiveOnly, controls);
+			final CountDownLatch startSignal = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+			try {
+				List<Future<Map<Stmt, Boolean>>> futures = new ArrayList<Future<Map<Stmt, Boolean>>>();
+				for (int t = 0; t < THREAD_COUNT; t++) {
+					final List<SourceQuery> order = new ArrayList<SourceQuery>(queries);
+					Collections.shuffle(order, new Random(round * THREAD_COUNT + t));
+					futures.add(executor.submit(new Callable<Map<Stmt, Boolean>>() {
+
+						@Override
+						public Map<Stmt, Boolean> call() throws Exception {
+							startSignal.await();
+							Map<Stmt, Boolean> results = new HashMap<Stmt, Boolean>();
+							for (SourceQuery query : order)
+								results.put(query.stmt, manager.isSource(query.stmt, cfg));
+							return results;
+						}
+
+					}));
+				}
+				startSignal.countDown();
+
+				for (Future<Map<Stmt, Boolean>> future : futures) {
+					Map<Stmt, Boolean> actual = future.get();
+					for (SourceQuery query : queries)
+						Assert.assertEquals("Wrong result for " + query.stmt + " in " + query.method,
+								query.expected, actual.get(query.stmt).booleanValue());
+				}
+			}
+			finally {
+				executor.shutdownNow();
+			}
+
+			// The resource IDs copied between locals have been folded into
+			// the calls
+			for (SourceQuery query : queries)
+				if (query.stmt.containsInvokeExpr())
+					Assert.assertTrue(query.stmt.getInvokeExpr().getArg(0) instanceof IntConstant);
+		}
+	}
+
+}